@@ -0,0 +1,136 @@
+package at.yawk.yxml.benchmark;
+
+import java.util.Random;
+
+/**
+ * Documents the benchmarks run on. They are generated from a fixed seed so
+ * every run (and every branch) sees exactly the same input.
+ */
+public enum Corpus {
+    /**
+     * A small RSS feed, like the ones fetched in bulk by crawlers.
+     */
+    SMALL_RSS {
+        @Override
+        String generate(Random random) {
+            final StringBuilder b = new StringBuilder();
+            b.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            b.append("<rss version=\"2.0\" xmlns:dc=\"http://purl.org/dc/elements/1.1/\">\n<channel>\n");
+            b.append("<title>Example feed</title>\n<link>http://example.com/</link>\n");
+            for (int i = 0; i < 10; i++) {
+                b.append("<item>\n");
+                b.append("<title>").append(words(random, 6)).append("</title>\n");
+                b.append("<link>http://example.com/story/").append(i).append("</link>\n");
+                b.append("<guid isPermaLink=\"false\">").append(random.nextLong()).append("</guid>\n");
+                b.append("<dc:creator>").append(words(random, 2)).append("</dc:creator>\n");
+                b.append("<description>").append(words(random, 40)).append("</description>\n");
+                b.append("</item>\n");
+            }
+            b.append("</channel>\n</rss>\n");
+            return b.toString();
+        }
+    },
+    /**
+     * A large, flat XML export with many small records.
+     */
+    LARGE_FLAT_XML {
+        @Override
+        String generate(Random random) {
+            final StringBuilder b = new StringBuilder();
+            b.append("<?xml version=\"1.0\"?>\n<records>\n");
+            for (int i = 0; i < 20000; i++) {
+                b.append("<record id=\"").append(i).append("\" type=\"").append(WORDS[random.nextInt(WORDS.length)]);
+                b.append("\" score='").append(random.nextInt(1000)).append("'>");
+                b.append(words(random, 5));
+                b.append("</record>\n");
+            }
+            b.append("</records>\n");
+            return b.toString();
+        }
+    },
+    /**
+     * Real-world style HTML: unclosed and misnested tags, unquoted
+     * attributes, comments, scripts and inline styles.
+     */
+    MESSY_HTML {
+        @Override
+        String generate(Random random) {
+            final StringBuilder b = new StringBuilder();
+            b.append("<!DOCTYPE html>\n<html><head><title>Messy page</title>\n");
+            b.append("<meta charset=utf-8><link rel=stylesheet href=/style.css>\n");
+            b.append("<script type=\"text/javascript\">var x = 1; if (x < 2) { x++; }</script>\n");
+            b.append("</head><body class=main>\n");
+            for (int i = 0; i < 500; i++) {
+                switch (random.nextInt(6)) {
+                case 0:
+                    b.append("<div class=\"row col-").append(random.nextInt(12)).append("\" id=r").append(i).append(">");
+                    break;
+                case 1:
+                    b.append("<p>").append(words(random, 20));
+                    break;
+                case 2:
+                    b.append("<a href='/page?id=").append(i).append("&amp;ref=x' target=_blank>").append(words(random, 3)).append("</a>");
+                    break;
+                case 3:
+                    b.append("<br><img src=/img/").append(i).append(".png alt=\"").append(words(random, 2)).append("\">");
+                    break;
+                case 4:
+                    b.append("<!-- ").append(words(random, 4)).append(" -->");
+                    break;
+                default:
+                    b.append("</div></span><span style=\"color: red; font-weight: bold\">").append(words(random, 5));
+                    break;
+                }
+                b.append('\n');
+            }
+            b.append("</body></html>\n");
+            return b.toString();
+        }
+    },
+    /**
+     * Text with a high density of named and numeric entity references.
+     */
+    ENTITY_HEAVY_TEXT {
+        @Override
+        String generate(Random random) {
+            final String[] entities = { "&amp;", "&lt;", "&gt;", "&quot;", "&nbsp;", "&eacute;", "&copy;", "&#8212;", "&#x2019;", "&hellip;" };
+            final StringBuilder b = new StringBuilder();
+            b.append("<doc>");
+            for (int i = 0; i < 5000; i++) {
+                b.append(WORDS[random.nextInt(WORDS.length)]);
+                b.append(random.nextInt(3) == 0 ? entities[random.nextInt(entities.length)] : " ");
+            }
+            b.append("</doc>");
+            return b.toString();
+        }
+    };
+
+    private static final String[] WORDS = {
+            "lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipiscing", "elit", "sed", "do",
+            "eiusmod", "tempor", "incididunt", "ut", "labore", "et", "dolore", "magna", "aliqua", "café" };
+
+    private String content = null;
+
+    /**
+     * The content of this document.
+     */
+    public synchronized String getContent() {
+        if (content == null) {
+            content = generate(new Random(ordinal()));
+        }
+        return content;
+    }
+
+    abstract String generate(Random random);
+
+    private static String words(Random random, int count) {
+        final StringBuilder b = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i != 0) {
+                b.append(' ');
+            }
+            b.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return b.toString();
+    }
+}
@@ -0,0 +1,90 @@
+package at.yawk.yxml.benchmark;
+
+import at.yawk.yxml.Lexer;
+import at.yawk.yxml.TagNode;
+import at.yawk.yxml.dom.CompactDOM;
+import at.yawk.yxml.dom.DOMNode;
+import at.yawk.yxml.dom.DOMNode.DOMMatcher;
+import at.yawk.yxml.dom.DOMParser;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Builds and searches DOM trees.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DOMBenchmark {
+    @Param
+    public Corpus corpus;
+    
+    private String content;
+    private DOMNode root;
+    /**
+     * Matches the most common tag name of the corpus.
+     */
+    private DOMMatcher matcher;
+    
+    @Setup
+    public void setup() throws IOException {
+        content = corpus.getContent();
+        root = parse();
+        final Map<String, Integer> counts = new HashMap<String, Integer>();
+        String common = null;
+        final Iterator<DOMNode> iterator = root.iterateChildrenForMatch(new DOMMatcher() {
+            @Override
+            public boolean matches(DOMNode node) {
+                return node.getElement() instanceof TagNode;
+            }
+        }, true);
+        while (iterator.hasNext()) {
+            final String name = ((TagNode) iterator.next().getElement()).getTagName();
+            final Integer count = counts.get(name);
+            counts.put(name, count == null ? 1 : count + 1);
+            if (common == null || counts.get(name) > counts.get(common)) {
+                common = name;
+            }
+        }
+        matcher = DOMNode.getTagNameMatcher(common);
+    }
+    
+    @Benchmark
+    public DOMNode parse() throws IOException {
+        DOMNode node = new DOMParser(new Lexer(new StringReader(content))).parse();
+        // parse() returns the innermost unclosed element
+        while (node.getParent() != null) {
+            node = node.getParent();
+        }
+        return node;
+    }
+    
+    @Benchmark
+    public CompactDOM parseCompact() throws IOException {
+        return new DOMParser(new Lexer(new StringReader(content))).parseCompact();
+    }
+    
+    @Benchmark
+    public List<DOMNode> getChildrenForMatch() {
+        return root.getChildrenForMatch(matcher, Integer.MAX_VALUE, true);
+    }
+}
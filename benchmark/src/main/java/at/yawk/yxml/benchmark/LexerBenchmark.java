@@ -0,0 +1,72 @@
+package at.yawk.yxml.benchmark;
+
+import at.yawk.yxml.Lexer;
+import at.yawk.yxml.LexerCursor;
+import at.yawk.yxml.LexerCursor.Event;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Lexes a whole document per invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBenchmark {
+    @Param
+    public Corpus corpus;
+    
+    private String content;
+    
+    @Setup
+    public void setup() {
+        content = corpus.getContent();
+    }
+    
+    @Benchmark
+    public void next(Blackhole blackhole) throws IOException {
+        final Lexer lexer = new Lexer(new StringReader(content));
+        try {
+            while (true) {
+                blackhole.consume(lexer.next());
+            }
+        } catch (EOFException e) {}
+    }
+    
+    @Benchmark
+    public void nextZeroCopy(Blackhole blackhole) throws IOException {
+        final Lexer lexer = new Lexer(new StringReader(content));
+        lexer.setZeroCopy(true);
+        try {
+            while (true) {
+                blackhole.consume(lexer.next());
+            }
+        } catch (EOFException e) {}
+    }
+    
+    @Benchmark
+    public void cursor(Blackhole blackhole) throws IOException {
+        final LexerCursor cursor = new LexerCursor(new Lexer(new StringReader(content)));
+        Event event;
+        while ((event = cursor.advance()) != Event.END_DOCUMENT) {
+            blackhole.consume(event);
+        }
+    }
+}
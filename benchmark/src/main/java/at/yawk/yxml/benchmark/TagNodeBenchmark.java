@@ -0,0 +1,69 @@
+package at.yawk.yxml.benchmark;
+
+import at.yawk.yxml.Lexer;
+import at.yawk.yxml.Node;
+import at.yawk.yxml.TagNode;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parses the attributes of every tag of a document per invocation. Fresh
+ * nodes are created each time because they cache their attributes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TagNodeBenchmark {
+    @Param
+    public Corpus corpus;
+    
+    private String[] tags;
+    
+    @Setup
+    public void setup() throws IOException {
+        final List<String> tags = new ArrayList<String>();
+        final Lexer lexer = new Lexer(new StringReader(corpus.getContent()));
+        try {
+            while (true) {
+                final Node node = lexer.next();
+                if (node instanceof TagNode) {
+                    tags.add(node.getRawContent());
+                }
+            }
+        } catch (EOFException e) {}
+        this.tags = tags.toArray(new String[tags.size()]);
+    }
+    
+    @Benchmark
+    public void getAttributes(Blackhole blackhole) {
+        for (String tag : tags) {
+            blackhole.consume(new TagNode(tag).getAttributes());
+        }
+    }
+    
+    @Benchmark
+    public void getTagName(Blackhole blackhole) {
+        for (String tag : tags) {
+            blackhole.consume(new TagNode(tag).getTagName());
+        }
+    }
+}
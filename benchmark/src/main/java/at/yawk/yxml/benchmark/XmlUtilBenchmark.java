@@ -0,0 +1,112 @@
+package at.yawk.yxml.benchmark;
+
+import at.yawk.yxml.EntityNamespace;
+import at.yawk.yxml.Lexer;
+import at.yawk.yxml.Node;
+import at.yawk.yxml.TextNode;
+import at.yawk.yxml.XmlUtil;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Unescapes all text of a document and classifies all of its characters per
+ * invocation. The classification benchmarks compare the lookup tables of
+ * {@link XmlUtil} with the interval checks they replaced
+ * ({@link LegacyXmlUtil}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class XmlUtilBenchmark {
+    @Param
+    public Corpus corpus;
+    
+    private String[] texts;
+    private char[] characters;
+    
+    @Setup
+    public void setup() throws IOException {
+        final List<String> texts = new ArrayList<String>();
+        final Lexer lexer = new Lexer(new StringReader(corpus.getContent()));
+        try {
+            while (true) {
+                final Node node = lexer.next();
+                if (node instanceof TextNode) {
+                    texts.add(((TextNode) node).getText());
+                }
+            }
+        } catch (EOFException e) {}
+        this.texts = texts.toArray(new String[texts.size()]);
+        this.characters = corpus.getContent().toCharArray();
+    }
+    
+    @Benchmark
+    public void unescapeXml(Blackhole blackhole) {
+        for (String text : texts) {
+            blackhole.consume(XmlUtil.unescapeXml(text, EntityNamespace.HTML_NAMESPACE));
+        }
+    }
+    
+    @Benchmark
+    public int isNameCharacter() {
+        int count = 0;
+        for (char c : characters) {
+            if (XmlUtil.isNameCharacter(c)) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    @Benchmark
+    public int isNameCharacterLegacy() {
+        int count = 0;
+        for (char c : characters) {
+            if (LegacyXmlUtil.isNameCharacter(c)) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    @Benchmark
+    public int isWhitespace() {
+        int count = 0;
+        for (char c : characters) {
+            if (XmlUtil.isWhitespace(c)) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    @Benchmark
+    public int isWhitespaceLegacy() {
+        int count = 0;
+        for (char c : characters) {
+            if (LegacyXmlUtil.isWhitespace(c)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
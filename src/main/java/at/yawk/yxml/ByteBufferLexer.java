@@ -0,0 +1,322 @@
+package at.yawk.yxml;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * {@link Lexer} that works directly on encoded bytes, for example a
+ * {@link MappedByteBuffer}, instead of a {@link Reader}. Tags are found
+ * on the raw bytes and the content of a node is only decoded when it is first
+ * requested, so nodes that are skipped are never decoded at all.
+ * <p>
+ * Only UTF-8, US-ASCII and the ISO-8859 family are supported: in these,
+ * ASCII bytes always stand for ASCII characters and never occur inside
+ * multi-byte sequences.
+ * <p>
+ * Like in {@link #setZeroCopy(boolean) zero-copy mode}, nodes keep a
+ * reference to the input they were read from.
+ */
+public class ByteBufferLexer extends Lexer {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+    
+    private final Charset charset;
+    private CharsetDecoder decoder;
+    /**
+     * Whether the current token was decoded into the character buffer.
+     */
+    private boolean decoded = false;
+    
+    private ByteBuffer bytes;
+    private int byteTokenStart = 0;
+    private int byteTokenEnd = 0;
+    private int bytePosition = 0;
+    
+    /**
+     * Channel the current window was mapped from or <code>null</code> if the
+     * whole input is in {@link #bytes}.
+     */
+    private final FileChannel channel;
+    private final long channelSize;
+    private long windowOffset = 0;
+    private final int windowSize;
+    
+    /**
+     * Create a new {@link ByteBufferLexer} over the remaining bytes of the
+     * given buffer, which are decoded as UTF-8. The buffer itself is not
+     * modified.
+     */
+    public ByteBufferLexer(ByteBuffer bytes) {
+        this(bytes, UTF_8);
+    }
+    
+    /**
+     * Create a new {@link ByteBufferLexer} over the remaining bytes of the
+     * given buffer. The buffer itself is not modified.
+     * 
+     * @throws IllegalArgumentException
+     *             if the given charset is not supported.
+     */
+    public ByteBufferLexer(ByteBuffer bytes, Charset charset) {
+        super(0);
+        this.charset = checkCharset(charset);
+        this.bytes = bytes.slice();
+        this.channel = null;
+        this.channelSize = this.bytes.limit();
+        this.windowSize = 0;
+    }
+    
+    /**
+     * Create a new {@link ByteBufferLexer} that reads the given file channel
+     * from its current position by mapping it into memory piece by piece. This
+     * way, files larger than a single {@link MappedByteBuffer} can be lexed as
+     * well. The channel may be closed once this lexer is no longer used.
+     * 
+     * @throws IllegalArgumentException
+     *             if the given charset is not supported.
+     */
+    public ByteBufferLexer(FileChannel channel, Charset charset) throws IOException {
+        this(channel, charset, DEFAULT_WINDOW_SIZE);
+    }
+    
+    ByteBufferLexer(FileChannel channel, Charset charset, int windowSize) throws IOException {
+        super(0);
+        this.charset = checkCharset(charset);
+        this.channel = channel;
+        this.channelSize = channel.size();
+        this.windowSize = windowSize;
+        this.windowOffset = channel.position();
+        this.bytes = map(windowOffset, windowSize);
+    }
+    
+    /**
+     * @throws IllegalArgumentException
+     *             if the given charset is not supported.
+     */
+    static Charset checkCharset(Charset charset) {
+        final String name = charset.name();
+        if (!name.equals("UTF-8") && !name.equals("US-ASCII") && !name.startsWith("ISO-8859-")) {
+            throw new IllegalArgumentException("Unsupported charset " + charset);
+        }
+        return charset;
+    }
+    
+    /**
+     * Raw-text mode is not supported by this lexer, as its tokens are only
+     * found in the character buffer of {@link Lexer}. Use a {@link Lexer} with
+     * an {@link java.io.InputStreamReader} instead.
+     * 
+     * @throws UnsupportedOperationException
+     *             if <code>rawText</code> is <code>true</code>.
+     */
+    @Override
+    public void setRawText(boolean rawText) {
+        if (rawText) {
+            throw new UnsupportedOperationException("ByteBufferLexer does not support raw-text mode");
+        }
+    }
+    
+    /**
+     * Not supported, this lexer does not read from a {@link Reader}.
+     * 
+     * @throws UnsupportedOperationException
+     *             always.
+     */
+    @Override
+    public void reset(Reader reader) {
+        throw new UnsupportedOperationException("ByteBufferLexer cannot be reset");
+    }
+    
+    @Override
+    Node createNode() {
+        final int length = byteTokenEnd - byteTokenStart;
+        final ByteSlice element = new ByteSlice(bytes, byteTokenStart, length, charset);
+        if (!isTagToken()) {
+            return new TextNode(element);
+        }
+        if (length == 0) {
+            return new EmptyTagNode();
+        }
+        final int first = bytes.get(byteTokenStart) & 0xff;
+        final int last = bytes.get(byteTokenStart + length - 1) & 0xff;
+        final char c1;
+        if (first == '/' && length > 1) {
+            c1 = firstCharacter(byteTokenStart + 1);
+        } else {
+            c1 = firstCharacter(byteTokenStart);
+        }
+        if (XmlUtil.isNameStartCharacter(c1)) {
+            return new TagNode(element);
+        } else if (c1 == '?' && last == '?' && length > 2) {
+            return new XmlHeader(element);
+        } else {
+            return new UnknownTagNode(element);
+        }
+    }
+    
+    /**
+     * Decode the character starting at the given byte index. ASCII characters
+     * are returned directly.
+     */
+    private char firstCharacter(int index) {
+        final int b = bytes.get(index) & 0xff;
+        if (b < 0x80) {
+            return (char) b;
+        }
+        final int end = Math.min(index + 8, byteTokenEnd);
+        final String decoded = new ByteSlice(bytes, index, end - index, charset).toString();
+        return decoded.isEmpty() ? 0 : decoded.charAt(0);
+    }
+    
+    @Override
+    boolean scan() throws IOException {
+        if (!scanBytes()) {
+            return false;
+        }
+        decoded = false;
+        return true;
+    }
+    
+    @Override
+    int tokenLength() {
+        return byteTokenEnd - byteTokenStart;
+    }
+    
+    @Override
+    char tokenCharAt(int index) {
+        return (char) (bytes.get(byteTokenStart + index) & 0xff);
+    }
+    
+    /**
+     * Compares bytes if the name is ASCII, so skipped tags are not decoded.
+     */
+    @Override
+    boolean tokenNameEquals(int nameStart, String name) {
+        final int start = byteTokenStart + nameStart;
+        int end = start;
+        while (end < byteTokenEnd && !XmlUtil.isWhitespace((char) (bytes.get(end) & 0xff))) {
+            end++;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (name.charAt(i) >= 0x80) {
+                return new ByteSlice(bytes, start, end - start, charset).toString().equals(name);
+            }
+        }
+        if (end - start != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            if (bytes.get(start + i) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Decodes the token into the character buffer so the {@link LexerCursor}
+     * can read it.
+     */
+    @Override
+    void decodeToken() {
+        if (decoded) {
+            return;
+        }
+        if (decoder == null) {
+            decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+        if (buffer.length < byteTokenEnd - byteTokenStart) {
+            // supported charsets never decode to more chars than bytes
+            buffer = new char[byteTokenEnd - byteTokenStart];
+        }
+        final ByteBuffer in = bytes.duplicate();
+        in.limit(byteTokenEnd);
+        in.position(byteTokenStart);
+        final CharBuffer out = CharBuffer.wrap(buffer);
+        decoder.reset();
+        decoder.decode(in, out, true);
+        decoder.flush(out);
+        tokenStart = 0;
+        tokenEnd = out.position();
+        decoded = true;
+    }
+    
+    private boolean scanBytes() throws IOException {
+        byteTokenStart = bytePosition;
+        final byte delimiter = (byte) (insideTag ? '>' : '<');
+        int end;
+        while (true) {
+            end = indexOf(bytes, delimiter, bytePosition, bytes.limit());
+            if (end != -1) {
+                bytePosition = end + 1;
+                break;
+            }
+            bytePosition = bytes.limit();
+            if (!nextWindow()) {
+                if (byteTokenStart == bytes.limit()) {
+                    return false;
+                }
+                end = bytes.limit();
+                break;
+            }
+        }
+        byteTokenEnd = end;
+        insideTag = !insideTag;
+        if (listener != null) {
+            listener.charactersRead(bytePosition - byteTokenStart);
+        }
+        return true;
+    }
+    
+    private static int indexOf(ByteBuffer bytes, byte b, int from, int to) {
+        if (bytes.hasArray()) {
+            final byte[] array = bytes.array();
+            final int offset = bytes.arrayOffset();
+            for (int i = from + offset; i < to + offset; i++) {
+                if (array[i] == b) {
+                    return i - offset;
+                }
+            }
+        } else {
+            for (int i = from; i < to; i++) {
+                if (bytes.get(i) == b) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Map the next window of the channel, starting at the current token so it
+     * stays contiguous. Previous windows stay valid for the nodes that
+     * reference them.
+     * 
+     * @return <code>false</code> if the end of the input was reached.
+     */
+    private boolean nextWindow() throws IOException {
+        if (channel == null || windowOffset + bytes.limit() >= channelSize) {
+            return false;
+        }
+        final int kept = bytes.limit() - byteTokenStart;
+        final long size = Math.max(windowSize, 2L * kept);
+        windowOffset += byteTokenStart;
+        bytes = map(windowOffset, (int) Math.min(size, Integer.MAX_VALUE));
+        bytePosition -= byteTokenStart;
+        byteTokenStart = 0;
+        return true;
+    }
+    
+    private ByteBuffer map(long offset, int size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(size, channelSize - offset));
+    }
+}
@@ -0,0 +1,81 @@
+package at.yawk.yxml;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * {@link CharSequence} view of a range of encoded bytes. The bytes are only
+ * decoded when the characters are first requested, and the decoded
+ * {@link String} is cached.
+ */
+final class ByteSlice implements CharSequence {
+    private final ByteBuffer bytes;
+    private final int offset;
+    private final int length;
+    private final Charset charset;
+    private String string;
+    
+    ByteSlice(ByteBuffer bytes, int offset, int length, Charset charset) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+        this.charset = charset;
+    }
+    
+    @Override
+    public int length() {
+        return length == 0 ? 0 : toString().length();
+    }
+    
+    /**
+     * Returns <code>true</code> if this slice is empty, without decoding it.
+     */
+    public boolean isEmpty() {
+        return length == 0;
+    }
+    
+    @Override
+    public char charAt(int index) {
+        return toString().charAt(index);
+    }
+    
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().substring(start, end);
+    }
+    
+    /**
+     * Removes leading and trailing ASCII whitespace and control characters
+     * like {@link String#trim()} without decoding.
+     */
+    ByteSlice trim() {
+        int start = offset;
+        int end = offset + length;
+        while (start < end && (bytes.get(start) & 0xff) <= ' ') {
+            start++;
+        }
+        while (end > start && (bytes.get(end - 1) & 0xff) <= ' ') {
+            end--;
+        }
+        if (start == offset && end == offset + length) {
+            return this;
+        }
+        return new ByteSlice(bytes, start, end - start, charset);
+    }
+    
+    @Override
+    public String toString() {
+        if (string == null) {
+            if (bytes.hasArray()) {
+                string = new String(bytes.array(), bytes.arrayOffset() + offset, length, charset);
+            } else {
+                final byte[] copy = new byte[length];
+                final ByteBuffer source = bytes.duplicate();
+                source.position(offset);
+                source.get(copy);
+                string = new String(copy, charset);
+            }
+        }
+        return string;
+    }
+}
@@ -0,0 +1,26 @@
+package at.yawk.yxml;
+
+/**
+ * A CDATA section (<code>&lt;![CDATA[ ... ]]&gt;</code>). Only returned by
+ * lexers in {@link Lexer#setRawText(boolean) raw-text mode}; otherwise CDATA
+ * sections are returned as plain {@link UnknownTagNode}s.
+ */
+public class CDataNode extends UnknownTagNode {
+    public CDataNode(String content) {
+        super(content);
+    }
+    
+    CDataNode(CharSequence content) {
+        super(content);
+    }
+    
+    /**
+     * The content of this section, without the surrounding
+     * <code>![CDATA[</code> and <code>]]</code>. Unlike text, it is not
+     * escaped.
+     */
+    public String getData() {
+        final String content = getRawContent();
+        return content.substring(8, content.length() - 2);
+    }
+}
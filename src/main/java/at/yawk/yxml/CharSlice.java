@@ -0,0 +1,51 @@
+package at.yawk.yxml;
+
+/**
+ * {@link CharSequence} view of a range of a character array. The viewed
+ * characters must not be modified while the view is in use. The
+ * {@link String} representation is only created when it is first requested.
+ */
+final class CharSlice implements CharSequence {
+    final char[] array;
+    final int offset;
+    private final int length;
+    private String string;
+    
+    CharSlice(char[] array, int offset, int length) {
+        this.array = array;
+        this.offset = offset;
+        this.length = length;
+    }
+    
+    @Override
+    public int length() {
+        return length;
+    }
+    
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        return array[offset + index];
+    }
+    
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("[" + start + ", " + end + ")");
+        }
+        if (start == 0 && end == length) {
+            return this;
+        }
+        return new CharSlice(array, offset + start, end - start);
+    }
+    
+    @Override
+    public String toString() {
+        if (string == null) {
+            string = new String(array, offset, length);
+        }
+        return string;
+    }
+}
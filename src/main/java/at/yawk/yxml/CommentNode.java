@@ -0,0 +1,25 @@
+package at.yawk.yxml;
+
+/**
+ * A comment (<code>&lt;!-- ... --&gt;</code>). Only returned by lexers in
+ * {@link Lexer#setRawText(boolean) raw-text mode}; otherwise comments are
+ * returned as plain {@link UnknownTagNode}s.
+ */
+public class CommentNode extends UnknownTagNode {
+    public CommentNode(String content) {
+        super(content);
+    }
+    
+    CommentNode(CharSequence content) {
+        super(content);
+    }
+    
+    /**
+     * The text of this comment, without the surrounding <code>!--</code> and
+     * <code>--</code>.
+     */
+    public String getComment() {
+        final String content = getRawContent();
+        return content.substring(3, content.length() - 2);
+    }
+}
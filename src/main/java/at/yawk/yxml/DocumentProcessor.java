@@ -0,0 +1,177 @@
+package at.yawk.yxml;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Lexes many independent documents concurrently. Every document is read from
+ * its {@link DocumentSource} by a fresh {@link Lexer} that is passed to a
+ * {@link LexerTask}, for example one that builds a DOM:
+ * 
+ * <pre>
+ * processor.submit(source, lexer -&gt; new DOMParser(lexer).parse());
+ * </pre>
+ * 
+ * At most a fixed number of documents are processed at the same time;
+ * submitting more blocks the caller until one of them completes, so a
+ * producer cannot queue up an unbounded amount of work. Lexers are taken
+ * from a {@link LexerFactory} and reused between documents.
+ * <p>
+ * By default, every document is processed on its own virtual thread if the
+ * JVM supports them, otherwise on a fixed pool with one thread per concurrent
+ * document.
+ */
+public class DocumentProcessor implements Closeable {
+    private final Executor executor;
+    private final boolean ownsExecutor;
+    private final Semaphore permits;
+    private final LexerFactory lexerFactory;
+    
+    /**
+     * Create a processor that runs at most the given number of documents at a
+     * time on virtual threads or, if they are not available, on a thread pool
+     * of that size. The threads are stopped by {@link #close()}.
+     */
+    public DocumentProcessor(int maxConcurrency) {
+        this(createExecutor(maxConcurrency), maxConcurrency, true);
+    }
+    
+    /**
+     * Create a processor that runs at most the given number of documents at a
+     * time on the given executor. The executor is not shut down by
+     * {@link #close()}.
+     */
+    public DocumentProcessor(Executor executor, int maxConcurrency) {
+        this(executor, maxConcurrency, false);
+    }
+    
+    private DocumentProcessor(Executor executor, int maxConcurrency, boolean ownsExecutor) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.permits = new Semaphore(maxConcurrency);
+        // at most one unused lexer per concurrent document
+        this.lexerFactory = new LexerFactory(maxConcurrency);
+    }
+    
+    private static ExecutorService createExecutor(int maxConcurrency) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (Exception e) {
+            // virtual threads need Java 21
+            return Executors.newFixedThreadPool(maxConcurrency);
+        }
+    }
+    
+    /**
+     * Process the given document. This blocks while the maximum number of
+     * documents is already being processed.
+     * 
+     * @return a future that completes with the result of the task or
+     *         exceptionally with any exception thrown while opening or
+     *         lexing the document.
+     * @throws InterruptedException
+     *             if the thread was interrupted while waiting.
+     */
+    public <T> CompletableFuture<T> submit(final DocumentSource source, final LexerTask<? extends T> task) throws InterruptedException {
+        permits.acquire();
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        future.complete(process(source, task));
+                    } catch (Throwable t) {
+                        future.completeExceptionally(t);
+                    } finally {
+                        permits.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+        }
+        return future;
+    }
+    
+    /**
+     * Process all given documents. This blocks until the last one was
+     * submitted.
+     * 
+     * @return one future per document, in the order of the given collection.
+     * @see #submit(DocumentSource, LexerTask)
+     */
+    public <T> List<CompletableFuture<T>> submitAll(Collection<? extends DocumentSource> sources, LexerTask<? extends T> task) throws InterruptedException {
+        final List<CompletableFuture<T>> futures = new ArrayList<CompletableFuture<T>>(sources.size());
+        for (DocumentSource source : sources) {
+            futures.add(this.<T> submit(source, task));
+        }
+        return futures;
+    }
+    
+    private <T> T process(DocumentSource source, LexerTask<? extends T> task) throws IOException {
+        final Reader reader = source.open();
+        try {
+            final Lexer lexer = lexerFactory.create(reader);
+            final T result = task.process(lexer);
+            lexerFactory.release(lexer);
+            return result;
+        } finally {
+            reader.close();
+        }
+    }
+    
+    /**
+     * The factory that creates the lexers for all documents. Its settings
+     * apply to documents submitted afterwards.
+     */
+    public LexerFactory getLexerFactory() {
+        return lexerFactory;
+    }
+    
+    /**
+     * Stop accepting documents. Documents that were already submitted are
+     * still processed. An executor passed to the constructor is left running.
+     */
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+    
+    /**
+     * Source of a single document.
+     */
+    public static interface DocumentSource {
+        /**
+         * Open the document. The reader is closed once it was processed.
+         */
+        Reader open() throws IOException;
+    }
+    
+    /**
+     * Work done with the lexer of a single document.
+     */
+    public static interface LexerTask<T> {
+        /**
+         * Process the document read by the given lexer. The lexer must not be
+         * used after this method returns.
+         */
+        T process(Lexer lexer) throws IOException;
+    }
+}
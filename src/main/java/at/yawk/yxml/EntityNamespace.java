@@ -1,5 +1,6 @@
 package at.yawk.yxml;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -12,10 +13,25 @@ public class EntityNamespace implements Cloneable {
      * Default XML namespace as specified by the W3C XML conventions.
      */
     public static final EntityNamespace DEFAULT_XML_NAMESPACE = new EntityNamespace(Collections.<String, String> emptyMap());
+    /**
+     * All named character references defined by HTML5. The table is only
+     * loaded when the first entity is resolved through this namespace or a
+     * copy of it.
+     */
     public static final EntityNamespace HTML_NAMESPACE;
     
     private final Map<String, String> entities;
     private boolean modifiable = true;
+    /**
+     * Entities that apply unless overridden in {@link #entities}, or
+     * <code>null</code>.
+     */
+    private EntityTable table = null;
+    /**
+     * Trie compiled from {@link #entities} and {@link #table}, built on first
+     * use and discarded whenever an entity is added.
+     */
+    private volatile EntityTrie trie = null;
     
     static {
         DEFAULT_XML_NAMESPACE.putEntity("amp", "&");
@@ -25,102 +41,7 @@ public class EntityNamespace implements Cloneable {
         DEFAULT_XML_NAMESPACE.putEntity("quot", "\"");
         DEFAULT_XML_NAMESPACE.modifiable = false;
         HTML_NAMESPACE = new EntityNamespace();
-        HTML_NAMESPACE.putEntity("nbsp", "\u0160");
-        HTML_NAMESPACE.putEntity("iexcl", "\u0161");
-        HTML_NAMESPACE.putEntity("cent", "\u0162");
-        HTML_NAMESPACE.putEntity("pound", "\u0163");
-        HTML_NAMESPACE.putEntity("curren", "\u0164");
-        HTML_NAMESPACE.putEntity("yen", "\u0165");
-        HTML_NAMESPACE.putEntity("brvbar", "\u0166");
-        HTML_NAMESPACE.putEntity("sect", "\u0167");
-        HTML_NAMESPACE.putEntity("uml", "\u0168");
-        HTML_NAMESPACE.putEntity("copy", "\u0169");
-        HTML_NAMESPACE.putEntity("ordf", "\u0170");
-        HTML_NAMESPACE.putEntity("laquo", "\u0171");
-        HTML_NAMESPACE.putEntity("not", "\u0172");
-        HTML_NAMESPACE.putEntity("shy", "\u0173");
-        HTML_NAMESPACE.putEntity("reg", "\u0174");
-        HTML_NAMESPACE.putEntity("macr", "\u0175");
-        HTML_NAMESPACE.putEntity("deg", "\u0176");
-        HTML_NAMESPACE.putEntity("plusmn", "\u0177");
-        HTML_NAMESPACE.putEntity("sup2", "\u0178");
-        HTML_NAMESPACE.putEntity("sup3", "\u0179");
-        HTML_NAMESPACE.putEntity("acute", "\u0180");
-        HTML_NAMESPACE.putEntity("micro", "\u0181");
-        HTML_NAMESPACE.putEntity("para", "\u0182");
-        HTML_NAMESPACE.putEntity("middot", "\u0183");
-        HTML_NAMESPACE.putEntity("cedil", "\u0184");
-        HTML_NAMESPACE.putEntity("sup1", "\u0185");
-        HTML_NAMESPACE.putEntity("ordm", "\u0186");
-        HTML_NAMESPACE.putEntity("raquo", "\u0187");
-        HTML_NAMESPACE.putEntity("frac14", "\u0188");
-        HTML_NAMESPACE.putEntity("frac12", "\u0189");
-        HTML_NAMESPACE.putEntity("frac34", "\u0190");
-        HTML_NAMESPACE.putEntity("iquest", "\u0191");
-        HTML_NAMESPACE.putEntity("times", "\u0215");
-        HTML_NAMESPACE.putEntity("divide", "\u0247");
-        HTML_NAMESPACE.putEntity("Agrave", "\u0192");
-        HTML_NAMESPACE.putEntity("Aacute", "\u0193");
-        HTML_NAMESPACE.putEntity("Acirc", "\u0194");
-        HTML_NAMESPACE.putEntity("Atilde", "\u0195");
-        HTML_NAMESPACE.putEntity("Auml", "\u0196");
-        HTML_NAMESPACE.putEntity("Aring", "\u0197");
-        HTML_NAMESPACE.putEntity("AElig", "\u0198");
-        HTML_NAMESPACE.putEntity("Ccedil", "\u0199");
-        HTML_NAMESPACE.putEntity("Egrave", "\u0200");
-        HTML_NAMESPACE.putEntity("Eacute", "\u0201");
-        HTML_NAMESPACE.putEntity("Ecirc", "\u0202");
-        HTML_NAMESPACE.putEntity("Euml", "\u0203");
-        HTML_NAMESPACE.putEntity("Igrave", "\u0204");
-        HTML_NAMESPACE.putEntity("Iacute", "\u0205");
-        HTML_NAMESPACE.putEntity("Icirc", "\u0206");
-        HTML_NAMESPACE.putEntity("Iuml", "\u0207");
-        HTML_NAMESPACE.putEntity("ETH", "\u0208");
-        HTML_NAMESPACE.putEntity("Ntilde", "\u0209");
-        HTML_NAMESPACE.putEntity("Ograve", "\u0210");
-        HTML_NAMESPACE.putEntity("Oacute", "\u0211");
-        HTML_NAMESPACE.putEntity("Ocirc", "\u0212");
-        HTML_NAMESPACE.putEntity("Otilde", "\u0213");
-        HTML_NAMESPACE.putEntity("Ouml", "\u0214");
-        HTML_NAMESPACE.putEntity("Oslash", "\u0216");
-        HTML_NAMESPACE.putEntity("Ugrave", "\u0217");
-        HTML_NAMESPACE.putEntity("Uacute", "\u0218");
-        HTML_NAMESPACE.putEntity("Ucirc", "\u0219");
-        HTML_NAMESPACE.putEntity("Uuml", "\u0220");
-        HTML_NAMESPACE.putEntity("Yacute", "\u0221");
-        HTML_NAMESPACE.putEntity("THORN", "\u0222");
-        HTML_NAMESPACE.putEntity("szlig", "\u0223");
-        HTML_NAMESPACE.putEntity("agrave", "\u0224");
-        HTML_NAMESPACE.putEntity("aacute", "\u0225");
-        HTML_NAMESPACE.putEntity("acirc", "\u0226");
-        HTML_NAMESPACE.putEntity("atilde", "\u0227");
-        HTML_NAMESPACE.putEntity("auml", "\u0228");
-        HTML_NAMESPACE.putEntity("aring", "\u0229");
-        HTML_NAMESPACE.putEntity("aelig", "\u0230");
-        HTML_NAMESPACE.putEntity("ccedil", "\u0231");
-        HTML_NAMESPACE.putEntity("egrave", "\u0232");
-        HTML_NAMESPACE.putEntity("eacute", "\u0233");
-        HTML_NAMESPACE.putEntity("ecirc", "\u0234");
-        HTML_NAMESPACE.putEntity("euml", "\u0235");
-        HTML_NAMESPACE.putEntity("igrave", "\u0236");
-        HTML_NAMESPACE.putEntity("iacute", "\u0237");
-        HTML_NAMESPACE.putEntity("icirc", "\u0238");
-        HTML_NAMESPACE.putEntity("iuml", "\u0239");
-        HTML_NAMESPACE.putEntity("eth", "\u0240");
-        HTML_NAMESPACE.putEntity("ntilde", "\u0241");
-        HTML_NAMESPACE.putEntity("ograve", "\u0242");
-        HTML_NAMESPACE.putEntity("oacute", "\u0243");
-        HTML_NAMESPACE.putEntity("ocirc", "\u0244");
-        HTML_NAMESPACE.putEntity("otilde", "\u0245");
-        HTML_NAMESPACE.putEntity("ouml", "\u0246");
-        HTML_NAMESPACE.putEntity("oslash", "\u0248");
-        HTML_NAMESPACE.putEntity("ugrave", "\u0249");
-        HTML_NAMESPACE.putEntity("uacute", "\u0250");
-        HTML_NAMESPACE.putEntity("ucirc", "\u0251");
-        HTML_NAMESPACE.putEntity("uuml", "\u0252");
-        HTML_NAMESPACE.putEntity("yacute", "\u0253");
-        HTML_NAMESPACE.putEntity("thorn", "\u0254");
-        HTML_NAMESPACE.putEntity("yuml", "\u0255");
+        HTML_NAMESPACE.table = EntityTable.HTML5;
     }
     
     /**
@@ -143,6 +64,7 @@ public class EntityNamespace implements Cloneable {
      */
     public EntityNamespace(EntityNamespace copy) {
         this(copy.entities);
+        this.table = copy.table;
     }
     
     /**
@@ -150,7 +72,11 @@ public class EntityNamespace implements Cloneable {
      * <code>null</code> if it is not found.
      */
     public String getEntity(String name) {
-        return entities.get(name);
+        final String entity = entities.get(name);
+        if (entity == null && table != null) {
+            return table.get(name);
+        }
+        return entity;
     }
     
     /**
@@ -165,6 +91,70 @@ public class EntityNamespace implements Cloneable {
             throw new UnsupportedOperationException();
         }
         entities.put(name, value);
+        trie = null;
+    }
+    
+    /**
+     * Returns the trie over the entities of this namespace, compiling it if
+     * this namespace changed since it was last used.
+     */
+    EntityTrie getTrie() {
+        EntityTrie trie = this.trie;
+        if (trie == null) {
+            trie = compileTrie();
+            this.trie = trie;
+        }
+        return trie;
+    }
+    
+    private EntityTrie compileTrie() {
+        final String[] names = entities.keySet().toArray(new String[entities.size()]);
+        Arrays.sort(names);
+        final String[] values = new String[names.length];
+        boolean overridden = false;
+        for (int i = 0; i < names.length; i++) {
+            values[i] = entities.get(names[i]);
+            if (table != null && !values[i].equals(table.get(names[i]))) {
+                overridden = true;
+            }
+        }
+        if (table == null) {
+            return new EntityTrie(names, values);
+        }
+        if (!overridden) {
+            // only redefines entities of the table with the same values
+            return table.getTrie();
+        }
+        
+        // merge both sorted name lists, letting our own entities win
+        final String[] tableNames = table.getNames();
+        final String[] tableValues = table.getValues();
+        final String[] mergedNames = new String[tableNames.length + names.length];
+        final String[] mergedValues = new String[mergedNames.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < tableNames.length || j < names.length) {
+            final int comparison;
+            if (i == tableNames.length) {
+                comparison = 1;
+            } else if (j == names.length) {
+                comparison = -1;
+            } else {
+                comparison = tableNames[i].compareTo(names[j]);
+            }
+            if (comparison < 0) {
+                mergedNames[count] = tableNames[i];
+                mergedValues[count++] = tableValues[i++];
+            } else {
+                if (comparison == 0) {
+                    i++;
+                }
+                mergedNames[count] = names[j];
+                mergedValues[count++] = values[j++];
+            }
+        }
+        return new EntityTrie(Arrays.copyOf(mergedNames, count), Arrays.copyOf(mergedValues, count));
     }
     
     /**
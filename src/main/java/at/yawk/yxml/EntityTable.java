@@ -0,0 +1,122 @@
+package at.yawk.yxml;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read-only table of entities that is loaded from a class path resource on
+ * first use, so namespaces can refer to large entity sets without paying for
+ * them until something is actually resolved.
+ * <p>
+ * Every line of the resource holds an entity name followed by the code points
+ * of its value in hexadecimal, all separated by single spaces. Lines are
+ * sorted by name.
+ */
+final class EntityTable {
+    /**
+     * All named character references of the HTML5 specification (only the
+     * variants terminated with <code>;</code>).
+     */
+    static final EntityTable HTML5 = new EntityTable("html5-entities.txt");
+    
+    private final String resource;
+    /**
+     * Sorted entity names, <code>null</code> until loaded. Written after
+     * {@link #values} so a loaded table is always seen completely.
+     */
+    private volatile String[] names = null;
+    private String[] values;
+    private volatile EntityTrie trie = null;
+    
+    private EntityTable(String resource) {
+        this.resource = resource;
+    }
+    
+    /**
+     * Returns the value of the entity with the given name or <code>null</code>
+     * if this table does not contain it.
+     */
+    String get(String name) {
+        final String[] names = getNames();
+        final int i = Arrays.binarySearch(names, name);
+        return i >= 0 ? values[i] : null;
+    }
+    
+    /**
+     * The sorted entity names of this table. Must not be modified.
+     */
+    String[] getNames() {
+        String[] names = this.names;
+        if (names == null) {
+            synchronized (this) {
+                names = this.names;
+                if (names == null) {
+                    names = load();
+                }
+            }
+        }
+        return names;
+    }
+    
+    /**
+     * The entity values in the order of {@link #getNames()}. Must not be
+     * modified.
+     */
+    String[] getValues() {
+        getNames();
+        return values;
+    }
+    
+    /**
+     * A trie over all entities of this table, shared by every namespace that
+     * does not override any of them.
+     */
+    EntityTrie getTrie() {
+        EntityTrie trie = this.trie;
+        if (trie == null) {
+            trie = new EntityTrie(getNames(), getValues());
+            this.trie = trie;
+        }
+        return trie;
+    }
+    
+    private String[] load() {
+        final List<String> names = new ArrayList<String>();
+        final List<String> values = new ArrayList<String>();
+        final InputStream in = EntityTable.class.getResourceAsStream(resource);
+        if (in == null) {
+            throw new IllegalStateException("Missing entity table " + resource);
+        }
+        try {
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.US_ASCII));
+            try {
+                final StringBuilder value = new StringBuilder();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    final String[] parts = line.split(" ");
+                    value.setLength(0);
+                    for (int i = 1; i < parts.length; i++) {
+                        value.appendCodePoint(Integer.parseInt(parts[i], 16));
+                    }
+                    names.add(parts[0]);
+                    values.add(value.toString());
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.values = values.toArray(new String[values.size()]);
+        final String[] loaded = names.toArray(new String[names.size()]);
+        this.names = loaded;
+        return loaded;
+    }
+}
@@ -0,0 +1,107 @@
+package at.yawk.yxml;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable trie over the entity names of an {@link EntityNamespace}. Names
+ * are matched directly in the unescaped text so resolving an entity does not
+ * need to create a {@link String} for its name.
+ * <p>
+ * Nodes are numbered in breadth-first order so the edges leaving a node are
+ * stored next to each other, sorted by character, and can be binary searched.
+ */
+final class EntityTrie {
+    /**
+     * Index of the first edge of every node, with one extra entry so the
+     * edges of node <code>n</code> are
+     * <code>firstEdge[n] .. firstEdge[n + 1] - 1</code>.
+     */
+    private final int[] firstEdge;
+    private final char[] edgeCharacters;
+    private final int[] edgeTargets;
+    /**
+     * The entity value of every node or <code>null</code> if no entity name
+     * ends at that node.
+     */
+    private final String[] values;
+    
+    /**
+     * Build a trie from the given entity names, which must be sorted and
+     * distinct, and their values.
+     */
+    EntityTrie(String[] names, String[] entityValues) {
+        final List<String> values = new ArrayList<String>();
+        final List<Integer> firstEdge = new ArrayList<Integer>();
+        final StringBuilder edgeCharacters = new StringBuilder();
+        final List<Integer> edgeTargets = new ArrayList<Integer>();
+        // every queued node is a range of names sharing the first depth characters
+        final List<int[]> queue = new ArrayList<int[]>();
+        queue.add(new int[] { 0, names.length, 0 });
+        for (int node = 0; node < queue.size(); node++) {
+            int from = queue.get(node)[0];
+            final int to = queue.get(node)[1];
+            final int depth = queue.get(node)[2];
+            // names are sorted, so a name ending here comes first
+            if (from < to && names[from].length() == depth) {
+                values.add(entityValues[from]);
+                from++;
+            } else {
+                values.add(null);
+            }
+            firstEdge.add(edgeTargets.size());
+            while (from < to) {
+                final char c = names[from].charAt(depth);
+                int groupEnd = from + 1;
+                for (; groupEnd < to && names[groupEnd].charAt(depth) == c; groupEnd++);
+                edgeCharacters.append(c);
+                edgeTargets.add(queue.size());
+                queue.add(new int[] { from, groupEnd, depth + 1 });
+                from = groupEnd;
+            }
+        }
+        firstEdge.add(edgeTargets.size());
+        
+        this.values = values.toArray(new String[values.size()]);
+        this.firstEdge = new int[firstEdge.size()];
+        for (int i = 0; i < this.firstEdge.length; i++) {
+            this.firstEdge[i] = firstEdge.get(i);
+        }
+        this.edgeCharacters = edgeCharacters.toString().toCharArray();
+        this.edgeTargets = new int[edgeTargets.size()];
+        for (int i = 0; i < this.edgeTargets.length; i++) {
+            this.edgeTargets[i] = edgeTargets.get(i);
+        }
+    }
+    
+    /**
+     * Returns the value of the entity whose name is the given range of the
+     * sequence or <code>null</code> if there is no such entity.
+     */
+    String get(CharSequence s, int start, int end) {
+        int node = 0;
+        for (int i = start; i < end; i++) {
+            final char c = s.charAt(i);
+            int low = firstEdge[node];
+            int high = firstEdge[node + 1] - 1;
+            int next = -1;
+            while (low <= high) {
+                final int middle = (low + high) >>> 1;
+                final char edge = edgeCharacters[middle];
+                if (edge < c) {
+                    low = middle + 1;
+                } else if (edge > c) {
+                    high = middle - 1;
+                } else {
+                    next = edgeTargets[middle];
+                    break;
+                }
+            }
+            if (next == -1) {
+                return null;
+            }
+            node = next;
+        }
+        return values[node];
+    }
+}
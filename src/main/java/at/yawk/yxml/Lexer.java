@@ -10,23 +10,83 @@ import java.net.URL;
 import java.net.URLConnection;
 import java.nio.charset.Charset;
 import java.util.Map;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import at.yawk.yxml.TagNode.TagType;
 
 /**
  * A lexer that can iterate over a {@link Reader} and parses {@link Node}
  * objects.
  */
 public class Lexer {
-    private final char[] singleCharArray = new char[1];
-    private final Reader reader;
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    /**
+     * Elements whose content is not parsed in raw-text mode.
+     */
+    private static final String[] RAW_TEXT_ELEMENTS = { "script", "style" };
     
-    private boolean insideTag = false;
+    private Reader reader;
+    
+    /**
+     * Window of characters read from the reader. Everything between
+     * {@link #tokenStart} and {@link #limit} is still needed.
+     */
+    char[] buffer;
+    /**
+     * Bounds of the last token found by {@link #scan()}, see
+     * {@link #decodeToken()}.
+     */
+    int tokenStart = 0;
+    int tokenEnd = 0;
+    private int position = 0;
+    private int limit = 0;
+    /**
+     * Whether nodes created in zero-copy mode reference the current buffer, in
+     * which case it may not be overwritten anymore.
+     */
+    private boolean bufferShared = false;
+    /**
+     * Whether the last {@link #scan()} ran out of input in the middle of a
+     * token, which the next call continues.
+     */
+    private boolean suspended = false;
+    
+    boolean insideTag = false;
     private boolean cleanupWhitespace = false;
+    private boolean zeroCopy = false;
+    private boolean rawText = false;
+    /**
+     * Raw-text mode: kind of the tag that is currently scanned or
+     * <code>null</code> if it was not determined yet.
+     */
+    private TagMode tagMode = null;
+    /**
+     * Raw-text mode: the quote of the attribute value the scan is in or
+     * <code>0</code>.
+     */
+    private char quote = 0;
+    /**
+     * Raw-text mode: the name of the element whose content is the next text
+     * token or <code>null</code>.
+     */
+    private String rawTextElement = null;
+    private SymbolTable symbolTable = new SymbolTable();
+    ParseListener listener = null;
     
     /**
      * Default constructor.
      */
     public Lexer(Reader reader) {
         this.reader = reader;
+        this.buffer = new char[DEFAULT_BUFFER_SIZE];
+    }
+    
+    /**
+     * Constructor for subclasses that do not read from a {@link Reader}.
+     */
+    Lexer(int bufferSize) {
+        this.reader = null;
+        this.buffer = new char[bufferSize];
     }
     
     /**
@@ -88,63 +148,505 @@ public class Lexer {
      */
     public Node next() throws IOException {
         while (true) {
-            final Node n = next0();
-            if (cleanupWhitespace) {
-                if (n instanceof TextNode) {
-                    n.setContent(n.getRawContent().trim());
-                    if (n.getRawContent().isEmpty()) {
-                        continue;
-                    }
+            final Node n = prepare(next0());
+            if (n != null) {
+                // retain for compatibility
+                currentNode = n;
+                return n;
+            }
+        }
+    }
+    
+    /**
+     * Skip the rest of the element started by the start tag last returned by
+     * {@link #next()}, including its end tag. Only tags with the same name are
+     * counted to find the matching end tag, so unclosed elements inside it do
+     * not matter. Skipped tokens are not turned into nodes; the end tag becomes
+     * the current node. If the element is not closed, everything up to the end
+     * of the input is skipped and there is no current node.
+     * 
+     * @throws IllegalStateException
+     *             if the last node was not a start tag.
+     * @throws IOException
+     *             if any IO errors occur.
+     */
+    public void skipElement() throws IOException {
+        if (!(currentNode instanceof TagNode) || ((TagNode) currentNode).getType() != TagType.START) {
+            throw new IllegalStateException("Last node was not a start tag");
+        }
+        final String name = ((TagNode) currentNode).getTagName();
+        int depth = 1;
+        while (scan()) {
+            final int length = tokenLength();
+            if (!isTagToken() || length == 0) {
+                continue;
+            }
+            if (tokenCharAt(0) == '/') {
+                if (tokenNameEquals(1, name) && --depth == 0) {
+                    currentNode = prepare(createNode());
+                    return;
                 }
+            } else if (tokenCharAt(length - 1) != '/' && tokenNameEquals(0, name)) {
+                depth++;
             }
-            // retain for compatibility
-            currentNode = n;
-            return n;
         }
+        currentNode = null;
     }
     
-    private Node next0() throws IOException {
-        final StringBuilder b = new StringBuilder();
+    /**
+     * Skip ahead to the next start tag (or start-end tag) with the given name
+     * and return it. Skipped tokens are not turned into nodes.
+     * 
+     * @throws EOFException
+     *             if there is no such tag.
+     * @throws IOException
+     *             if any IO errors occur.
+     */
+    public TagNode skipTo(String name) throws IOException {
         while (true) {
-            char c;
-            try {
-                c = readCharacter();
-            } catch (EOFException e) {
-                if (b.length() == 0) {
-                    throw new EOFException();
+            if (!scan()) {
+                currentNode = null;
+                throw new EOFException();
+            }
+            if (isTagToken() && tokenLength() != 0 && tokenCharAt(0) != '/' && tokenNameEquals(0, name)) {
+                final Node n = prepare(createNode());
+                if (n instanceof TagNode) {
+                    currentNode = n;
+                    return (TagNode) n;
                 }
-                break;
             }
-            if (insideTag) {
-                if (c == '>') {
-                    break;
+        }
+    }
+    
+    /**
+     * Returns <code>true</code> if the name starting at the given index of the
+     * current tag token is the given name, using the same rules as
+     * {@link TagNode#getTagName()}.
+     */
+    boolean tokenNameEquals(int nameStart, String name) {
+        final int start = tokenStart + nameStart;
+        final int nameEnd = XmlUtil.indexOfWhitespace(buffer, start, tokenEnd);
+        return nameEnd - start == name.length() && regionMatches(start, name, false);
+    }
+    
+    /**
+     * Apply the settings of this lexer to a newly lexed node.
+     * 
+     * @return the node or <code>null</code> if it should be skipped.
+     */
+    Node prepare(Node n) {
+        if (cleanupWhitespace) {
+            if (n instanceof TextNode) {
+                final CharSequence trimmed = trim(n.getContentView());
+                if (trimmed instanceof ByteSlice ? ((ByteSlice) trimmed).isEmpty() : trimmed.length() == 0) {
+                    return null;
                 }
+                n.setContentView(trimmed);
+            }
+        }
+        if (n instanceof TagNode) {
+            ((TagNode) n).symbols = symbolTable;
+        }
+        if (listener != null) {
+            if (n instanceof TagNode) {
+                ((TagNode) n).listener = listener;
+            }
+            listener.nodeLexed(n);
+        }
+        return n;
+    }
+    
+    /**
+     * Start lexing a new document from the given reader, discarding any state
+     * of the previous one. The buffer and all settings of this lexer are kept,
+     * so a lexer can be reused for many documents without allocating. The old
+     * reader is not closed. Nodes returned before remain valid, even in
+     * zero-copy mode.
+     * 
+     * @see LexerFactory
+     */
+    public void reset(Reader reader) {
+        this.reader = reader;
+        if (bufferShared) {
+            buffer = new char[buffer.length];
+            bufferShared = false;
+        }
+        tokenStart = 0;
+        tokenEnd = 0;
+        position = 0;
+        limit = 0;
+        suspended = false;
+        insideTag = false;
+        tagMode = null;
+        quote = 0;
+        rawTextElement = null;
+        currentNode = null;
+    }
+    
+    /**
+     * The table used to intern the tag names and attribute keys of the tags
+     * returned by this lexer, or <code>null</code> if names are not interned.
+     * By default, every lexer has its own table.
+     */
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+    
+    /**
+     * Set the table used to intern names. A table may be shared between
+     * lexers, including ones used on different threads.
+     * 
+     * @see #getSymbolTable()
+     */
+    public void setSymbolTable(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+    }
+    
+    /**
+     * The listener that is informed about the input read and the nodes
+     * returned by this lexer or <code>null</code> if there is none (the
+     * default).
+     */
+    public ParseListener getParseListener() {
+        return listener;
+    }
+    
+    /**
+     * @see #getParseListener()
+     */
+    public void setParseListener(ParseListener listener) {
+        this.listener = listener;
+    }
+    
+    /**
+     * Returns a sequential {@link Stream} over the remaining nodes of this
+     * lexer. Nodes are read lazily as the stream consumes them.
+     * 
+     * @see LexerSpliterator
+     */
+    public Stream<Node> stream() {
+        return StreamSupport.stream(new LexerSpliterator(this), false);
+    }
+    
+    Node next0() throws IOException {
+        if (!scan()) {
+            throw new EOFException();
+        }
+        return createNode();
+    }
+    
+    /**
+     * Create the node for the last token found by {@link #scan()}.
+     */
+    Node createNode() {
+        final CharSequence element;
+        if (zeroCopy) {
+            element = new CharSlice(buffer, tokenStart, tokenEnd - tokenStart);
+            bufferShared = true;
+        } else {
+            element = new String(buffer, tokenStart, tokenEnd - tokenStart);
+        }
+        return parseElement(element, isTagToken());
+    }
+    
+    /**
+     * Find the next token in the input. On success, it is located in the
+     * {@link #buffer} between {@link #tokenStart} and {@link #tokenEnd}.
+     * 
+     * @return <code>false</code> if there are no more tokens available, or
+     *         if {@link #read(char[], int, int)} has no more characters yet.
+     *         In the latter case, the next call continues the same token.
+     */
+    boolean scan() throws IOException {
+        if (!suspended) {
+            tokenStart = position;
+            tagMode = null;
+            quote = 0;
+        }
+        suspended = false;
+        final char delimiter = insideTag ? '>' : '<';
+        int end;
+        while (true) {
+            if (rawText) {
+                end = findRawTokenEnd();
             } else {
-                if (c == '<') {
-                    break;
+                end = indexOf(buffer, delimiter, position, limit);
+                if (end == -1) {
+                    position = limit;
+                }
+            }
+            if (end != -1) {
+                position = end + 1;
+                break;
+            }
+            final int read = fill();
+            if (read == 0) {
+                suspended = true;
+                return false;
+            }
+            if (read == -1) {
+                if (tokenStart == limit) {
+                    return false;
                 }
+                end = limit;
+                position = limit;
+                break;
             }
-            b.append(c);
         }
-        String element = b.toString();
+        tokenEnd = end;
+        if (rawText) {
+            rawTextElement = insideTag && tagMode == TagMode.TAG ? rawTextElement(end) : null;
+        }
         insideTag = !insideTag;
-        return parseElement(element, !insideTag);
+        return true;
+    }
+    
+    /**
+     * Raw-text mode: search the end of the current token from
+     * {@link #position}. If it is not found, {@link #position} is set to where
+     * the search has to continue once more characters are available.
+     * 
+     * @return the index of the delimiter that ends the token or
+     *         <code>-1</code>.
+     */
+    private int findRawTokenEnd() {
+        if (!insideTag) {
+            if (rawTextElement != null) {
+                return findRawTextEnd();
+            }
+            final int end = indexOf(buffer, '<', position, limit);
+            if (end == -1) {
+                position = limit;
+            }
+            return end;
+        }
+        if (tagMode == null) {
+            tagMode = TagMode.of(buffer, tokenStart, limit);
+            if (tagMode == null) {
+                // wait for enough characters to tell
+                position = tokenStart;
+                return -1;
+            }
+        }
+        switch (tagMode) {
+        case COMMENT:
+            return findTerminated("--", 5);
+        case CDATA:
+            return findTerminated("]]", 10);
+        case PROCESSING_INSTRUCTION:
+            return findTerminated("?", 2);
+        default:
+            return findTagEnd();
+        }
+    }
+    
+    /**
+     * Find a <code>&gt;</code> at least the given number of characters after
+     * the token start that is preceded by the given terminator.
+     */
+    private int findTerminated(String terminator, int minLength) {
+        int i = Math.max(position, tokenStart + minLength);
+        while ((i = indexOf(buffer, '>', i, limit)) != -1) {
+            if (regionMatches(i - terminator.length(), terminator, false)) {
+                return i;
+            }
+            i++;
+        }
+        position = limit;
+        return -1;
+    }
+    
+    /**
+     * Find the <code>&gt;</code> that ends a tag, skipping quoted attribute
+     * values.
+     */
+    private int findTagEnd() {
+        int i = position;
+        while (i < limit) {
+            if (quote != 0) {
+                final int close = indexOf(buffer, quote, i, limit);
+                if (close == -1) {
+                    break;
+                }
+                quote = 0;
+                i = close + 1;
+                continue;
+            }
+            final char c = buffer[i];
+            if (c == '>') {
+                return i;
+            }
+            if ((c == '"' || c == '\'') && i > tokenStart && buffer[i - 1] == '=') {
+                quote = c;
+            }
+            i++;
+        }
+        position = limit;
+        return -1;
+    }
+    
+    /**
+     * Find the <code>&lt;</code> of the end tag of the current raw-text
+     * element.
+     */
+    private int findRawTextEnd() {
+        final String name = rawTextElement;
+        int i = position;
+        while ((i = indexOf(buffer, '<', i, limit)) != -1) {
+            // '/', the name and the character after it
+            if (i + name.length() + 2 >= limit) {
+                position = i;
+                return -1;
+            }
+            if (buffer[i + 1] == '/' && regionMatches(i + 2, name, true)) {
+                final char after = buffer[i + 2 + name.length()];
+                if (after == '>' || after == '/' || XmlUtil.isWhitespace(after)) {
+                    return i;
+                }
+            }
+            i++;
+        }
+        position = limit;
+        return -1;
+    }
+    
+    /**
+     * Returns the raw-text element started by the tag that ends at the given
+     * index or <code>null</code> if it is none.
+     */
+    private String rawTextElement(int end) {
+        if (end == tokenStart || buffer[end - 1] == '/') {
+            return null;
+        }
+        for (String name : RAW_TEXT_ELEMENTS) {
+            final int nameEnd = tokenStart + name.length();
+            if (nameEnd <= end && regionMatches(tokenStart, name, true) && (nameEnd == end || XmlUtil.isWhitespace(buffer[nameEnd]))) {
+                return name;
+            }
+        }
+        return null;
+    }
+    
+    private boolean regionMatches(int offset, String s, boolean ignoreCase) {
+        for (int i = 0; i < s.length(); i++) {
+            final char c = buffer[offset + i];
+            if (c != s.charAt(i) && !(ignoreCase && Character.toLowerCase(c) == s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Returns <code>true</code> if the last token found by {@link #scan()} is
+     * the content of a tag, <code>false</code> if it is text.
+     */
+    boolean isTagToken() {
+        return !insideTag;
+    }
+    
+    /**
+     * The length of the last token found by {@link #scan()}, in the units of
+     * the input.
+     */
+    int tokenLength() {
+        return tokenEnd - tokenStart;
+    }
+    
+    /**
+     * The character at the given index of the last token found by
+     * {@link #scan()}. Only ASCII characters are reliable, as subclasses may
+     * return single bytes of the undecoded input.
+     */
+    char tokenCharAt(int index) {
+        return buffer[tokenStart + index];
+    }
+    
+    /**
+     * Make the last token found by {@link #scan()} available in
+     * {@link #buffer} between {@link #tokenStart} and {@link #tokenEnd}. Only
+     * needed by subclasses that scan something other than the buffer.
+     */
+    void decodeToken() {
+    }
+    
+    private static int indexOf(char[] buffer, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == c) {
+                return i;
+            }
+        }
+        return -1;
     }
     
-    private Node parseElement(String element, boolean parseAsTag) {
+    /**
+     * Read more characters into the buffer, keeping everything from
+     * {@link #tokenStart} on. If the buffer is full, the kept characters are
+     * moved to its start or, if they fill it completely, it is grown. A buffer
+     * that is shared with zero-copy nodes is replaced instead of overwritten.
+     * 
+     * @return the number of characters read, as returned by
+     *         {@link #read(char[], int, int)}.
+     */
+    private int fill() throws IOException {
+        if (limit == buffer.length) {
+            final char[] target;
+            if (tokenStart == 0) {
+                target = new char[buffer.length * 2];
+            } else if (bufferShared) {
+                target = new char[buffer.length];
+            } else {
+                target = buffer;
+            }
+            System.arraycopy(buffer, tokenStart, target, 0, limit - tokenStart);
+            buffer = target;
+            bufferShared = false;
+            limit -= tokenStart;
+            position -= tokenStart;
+            tokenStart = 0;
+        }
+        final int read = read(buffer, limit, buffer.length - limit);
+        if (read > 0) {
+            limit += read;
+            if (listener != null) {
+                listener.charactersRead(read);
+            }
+        }
+        return read;
+    }
+    
+    /**
+     * Read characters into the given part of the buffer.
+     * 
+     * @return the number of characters read, <code>-1</code> at the end of the
+     *         input or <code>0</code> if no characters are available yet.
+     */
+    int read(char[] buffer, int offset, int length) throws IOException {
+        int read;
+        do {
+            read = reader.read(buffer, offset, length);
+        } while (read == 0);
+        return read;
+    }
+    
+    private Node parseElement(CharSequence element, boolean parseAsTag) {
         if (parseAsTag) {
-            final char[] chr = element.toCharArray();
-            if (chr.length == 0) {
+            final int length = element.length();
+            if (length == 0) {
                 return new EmptyTagNode();
             }
-            char c1 = chr[0];
-            if (c1 == '/' && chr.length > 1) {
-                c1 = chr[1];
+            char c1 = element.charAt(0);
+            if (c1 == '/' && length > 1) {
+                c1 = element.charAt(1);
             }
             if (XmlUtil.isNameStartCharacter(c1)) {
                 return new TagNode(element);
-            } else if (c1 == '?' && chr[chr.length - 1] == '?' && chr.length > 2) {
+            } else if (c1 == '?' && element.charAt(length - 1) == '?' && length > 2) {
                 return new XmlHeader(element);
+            } else if (rawText && isTerminated(element, TagMode.COMMENT.opening, "--")) {
+                return new CommentNode(element);
+            } else if (rawText && isTerminated(element, TagMode.CDATA.opening, "]]")) {
+                return new CDataNode(element);
             } else {
                 return new UnknownTagNode(element);
             }
@@ -153,11 +655,40 @@ public class Lexer {
         }
     }
     
-    private char readCharacter() throws IOException {
-        if (reader.read(singleCharArray) == -1) {
-            throw new EOFException();
+    private static boolean isTerminated(CharSequence element, String opening, String terminator) {
+        final int length = element.length();
+        if (length < opening.length() + terminator.length()) {
+            return false;
+        }
+        for (int i = 0; i < opening.length(); i++) {
+            if (element.charAt(i) != opening.charAt(i)) {
+                return false;
+            }
+        }
+        for (int i = 0; i < terminator.length(); i++) {
+            if (element.charAt(length - terminator.length() + i) != terminator.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Removes leading and trailing whitespace like {@link String#trim()}.
+     */
+    private static CharSequence trim(CharSequence s) {
+        if (s instanceof ByteSlice) {
+            return ((ByteSlice) s).trim();
         }
-        return singleCharArray[0];
+        int start = 0;
+        int end = s.length();
+        while (start < end && s.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && s.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return s.subSequence(start, end);
     }
     
     /**
@@ -175,6 +706,90 @@ public class Lexer {
         this.cleanupWhitespace = cleanupWhitespace;
     }
     
+    /**
+     * If set to <code>true</code>, nodes returned by {@link #next()} do not
+     * copy their content. Instead, {@link Node#getContentView()},
+     * {@link TagNode#getTagNameView()} and the attribute views are slices of
+     * the buffer of this lexer and {@link String}s are only created when
+     * requested. Buffers that are referenced by such nodes are never reused,
+     * so retaining a node keeps the buffer it was read from in memory. Tag
+     * names and attribute keys are still taken from the
+     * {@link #getSymbolTable() symbol table} if there is one.
+     */
+    public boolean isZeroCopy() {
+        return zeroCopy;
+    }
+    
+    /**
+     * @see #isZeroCopy()
+     */
+    public void setZeroCopy(boolean zeroCopy) {
+        this.zeroCopy = zeroCopy;
+    }
+    
+    /**
+     * If set to <code>true</code>, comments, CDATA sections and processing
+     * instructions are each lexed as a single token up to their terminator
+     * (<code>--&gt;</code>, <code>]]&gt;</code> and <code>?&gt;</code>), even
+     * if they contain <code>&gt;</code>. The same goes for quoted attribute
+     * values, and the content of <code>script</code> and <code>style</code>
+     * elements is returned as a single {@link TextNode} up to their end tag.
+     * Comments and CDATA sections are returned as {@link CommentNode} and
+     * {@link CDataNode}.
+     * <p>
+     * By default, every <code>&gt;</code> ends a tag and every
+     * <code>&lt;</code> starts one, which splits such constructs into several
+     * nodes.
+     */
+    public boolean isRawText() {
+        return rawText;
+    }
+    
+    /**
+     * @see #isRawText()
+     */
+    public void setRawText(boolean rawText) {
+        this.rawText = rawText;
+    }
+    
+    /**
+     * Kinds of tags that are scanned differently in raw-text mode.
+     */
+    private static enum TagMode {
+        TAG(""),
+        COMMENT("!--"),
+        CDATA("![CDATA["),
+        PROCESSING_INSTRUCTION("?");
+        
+        private static final TagMode[] SPECIAL = { COMMENT, CDATA, PROCESSING_INSTRUCTION };
+        
+        final String opening;
+        
+        private TagMode(String opening) {
+            this.opening = opening;
+        }
+        
+        /**
+         * Determine the kind of the tag starting at the given index or
+         * <code>null</code> if more characters are needed to tell.
+         */
+        static TagMode of(char[] buffer, int start, int limit) {
+            for (TagMode mode : SPECIAL) {
+                final String opening = mode.opening;
+                int i = 0;
+                for (; i < opening.length() && start + i < limit && buffer[start + i] == opening.charAt(i); i++);
+                if (i == opening.length()) {
+                    return mode;
+                }
+                if (start + i == limit) {
+                    // prefix of the opening
+                    return null;
+                }
+            }
+            return TAG;
+        }
+    }
+    
     // compatibility
     
     Node currentNode;
@@ -240,6 +855,9 @@ public class Lexer {
         return currentNode.getAttributesMap();
     }
     
+    /**
+     * @deprecated Use {@link TagNode#getAttribute(String)} instead.
+     */
     @Deprecated
     public String getAttribute(String key) {
         return currentNode.getAttribute(key);
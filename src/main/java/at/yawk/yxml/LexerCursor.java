@@ -0,0 +1,334 @@
+package at.yawk.yxml;
+
+import java.io.IOException;
+
+import at.yawk.yxml.TagNode.TagType;
+
+/**
+ * Pull-parser style alternative to {@link Lexer#next()} that does not create
+ * any {@link Node} objects. Each call to {@link #advance()} moves the cursor to
+ * the next token of the underlying {@link Lexer}, and the accessors of this
+ * class read that token directly from the lexer buffer. Only the
+ * {@link String}s returned by the accessors are allocated, and tag names and
+ * attribute keys do not even need that if they are already in the
+ * {@link Lexer#getSymbolTable() symbol table} of the lexer.
+ * <p>
+ * The tokens are the same as the ones {@link Lexer#next()} would return, and
+ * {@link Lexer#isCleanupWhitespace()} is honored as well. Both may be mixed on
+ * the same lexer, but zero-copy views created by {@link Lexer#next()} are not
+ * affected by this cursor.
+ */
+public class LexerCursor {
+    private final Lexer lexer;
+    private final TagTokenizer tokenizer = new TagTokenizer();
+    
+    private Event event = null;
+    private int start;
+    private int end;
+    private boolean tokenized;
+    private boolean decoded;
+    
+    public LexerCursor(Lexer lexer) {
+        this.lexer = lexer;
+    }
+    
+    /**
+     * Move to the next token and return its type. Returns
+     * {@link Event#END_DOCUMENT} once the input is exhausted.
+     * 
+     * @throws IOException
+     *             if any IO errors occur.
+     */
+    public Event advance() throws IOException {
+        while (true) {
+            if (!lexer.scan()) {
+                event = Event.END_DOCUMENT;
+                return event;
+            }
+            tokenized = false;
+            decoded = false;
+            if (lexer.isTagToken()) {
+                decode(false);
+                event = classifyTag();
+            } else {
+                if (lexer.isCleanupWhitespace() && isBlank()) {
+                    continue;
+                }
+                // text is only decoded once it is requested
+                event = Event.TEXT;
+            }
+            return event;
+        }
+    }
+    
+    private boolean isBlank() {
+        final int length = lexer.tokenLength();
+        for (int i = 0; i < length; i++) {
+            if (lexer.tokenCharAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Locate the current token in the lexer buffer.
+     */
+    private void decode(boolean text) {
+        if (decoded) {
+            return;
+        }
+        lexer.decodeToken();
+        start = lexer.tokenStart;
+        end = lexer.tokenEnd;
+        if (text && lexer.isCleanupWhitespace()) {
+            final char[] chr = lexer.buffer;
+            while (start < end && chr[start] <= ' ') {
+                start++;
+            }
+            while (end > start && chr[end - 1] <= ' ') {
+                end--;
+            }
+        }
+        decoded = true;
+    }
+    
+    private Event classifyTag() {
+        final char[] chr = lexer.buffer;
+        final int length = end - start;
+        if (length == 0) {
+            return Event.EMPTY_TAG;
+        }
+        char c1 = chr[start];
+        if (c1 == '/' && length > 1) {
+            c1 = chr[start + 1];
+        }
+        if (XmlUtil.isNameStartCharacter(c1)) {
+            if (chr[start] == '/') {
+                return Event.END_TAG;
+            } else if (chr[end - 1] == '/') {
+                return Event.START_END_TAG;
+            } else {
+                return Event.START_TAG;
+            }
+        } else if (c1 == '?' && chr[end - 1] == '?' && length > 2) {
+            // same content as XmlHeader
+            start++;
+            end--;
+            return Event.XML_HEADER;
+        } else if (lexer.isRawText() && isTerminated("!--", "--")) {
+            return Event.COMMENT;
+        } else if (lexer.isRawText() && isTerminated("![CDATA[", "]]")) {
+            return Event.CDATA;
+        } else {
+            return Event.UNKNOWN_TAG;
+        }
+    }
+    
+    private boolean isTerminated(String opening, String terminator) {
+        return end - start >= opening.length() + terminator.length()
+                && regionEquals(start, opening.length(), opening)
+                && regionEquals(end - terminator.length(), terminator.length(), terminator);
+    }
+    
+    /**
+     * The type of the current token or <code>null</code> if
+     * {@link #advance()} was not called yet.
+     */
+    public Event event() {
+        return event;
+    }
+    
+    /**
+     * The raw content of the current token, equal to
+     * {@link Node#getRawContent()} of the node {@link Lexer#next()} would have
+     * returned.
+     */
+    public String text() {
+        checkToken();
+        decode(event == Event.TEXT);
+        return new String(lexer.buffer, start, end - start);
+    }
+    
+    /**
+     * The tag type of the current token.
+     * 
+     * @see TagNode#getType()
+     */
+    public TagType tagType() {
+        tokenizeIfNecessary();
+        return event == Event.XML_HEADER ? TagType.START_END : tokenizer.type;
+    }
+    
+    /**
+     * The name of the current tag.
+     * 
+     * @see TagNode#getTagName()
+     */
+    public String tagName() {
+        tokenizeIfNecessary();
+        return name(tokenizer.nameStart, tokenizer.nameLength);
+    }
+    
+    /**
+     * Returns <code>true</code> if the name of the current tag equals the
+     * given name. Unlike <code>tagName().equals(name)</code> this does not
+     * allocate.
+     */
+    public boolean tagNameEquals(String name) {
+        tokenizeIfNecessary();
+        return regionEquals(tokenizer.nameStart, tokenizer.nameLength, name);
+    }
+    
+    /**
+     * The number of attributes of the current tag.
+     */
+    public int attributeCount() {
+        tokenizeIfNecessary();
+        return tokenizer.attributeCount;
+    }
+    
+    /**
+     * The key of the attribute with the given index.
+     * 
+     * @see TagNode.Attribute#getKey()
+     */
+    public String attributeKey(int index) {
+        final int base = attributeBase(index);
+        return name(tokenizer.attributes[base], tokenizer.attributes[base + 1]);
+    }
+    
+    /**
+     * The value of the attribute with the given index or <code>null</code> if
+     * it has none.
+     * 
+     * @see TagNode.Attribute#getValue()
+     */
+    public String attributeValue(int index) {
+        final int base = attributeBase(index);
+        final int valueStart = tokenizer.attributes[base + 2];
+        if (valueStart == -1) {
+            return null;
+        }
+        return new String(lexer.buffer, valueStart, tokenizer.attributes[base + 3]);
+    }
+    
+    /**
+     * The value of the attribute with the given key or <code>null</code> if
+     * there is no such attribute or it has no value. Of duplicate attributes,
+     * the last one is used, as in {@link TagNode#getAttribute(String)}.
+     */
+    public String attributeValue(String key) {
+        tokenizeIfNecessary();
+        final int[] bounds = tokenizer.attributes;
+        for (int i = (tokenizer.attributeCount - 1) * 4; i >= 0; i -= 4) {
+            if (regionEquals(bounds[i], bounds[i + 1], key)) {
+                return attributeValue(i / 4);
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Names are interned with the symbol table of the lexer, if it has one.
+     */
+    private String name(int offset, int length) {
+        final SymbolTable symbols = lexer.getSymbolTable();
+        return symbols == null ? new String(lexer.buffer, offset, length) : symbols.intern(lexer.buffer, offset, length);
+    }
+    
+    private int attributeBase(int index) {
+        tokenizeIfNecessary();
+        if (index < 0 || index >= tokenizer.attributeCount) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        return index * 4;
+    }
+    
+    private boolean regionEquals(int offset, int length, String s) {
+        if (length != s.length()) {
+            return false;
+        }
+        final char[] chr = lexer.buffer;
+        for (int i = 0; i < length; i++) {
+            if (chr[offset + i] != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private void checkToken() {
+        if (event == null || event == Event.END_DOCUMENT) {
+            throw new IllegalStateException("No current token");
+        }
+    }
+    
+    private void tokenizeIfNecessary() {
+        if (event == null || !event.isTag()) {
+            throw new IllegalStateException("Not a tag");
+        }
+        if (!tokenized) {
+            tokenizer.tokenize(lexer.buffer, start, end - start);
+            tokenized = true;
+        }
+    }
+    
+    /**
+     * Token types returned by {@link LexerCursor#advance()}.
+     */
+    public static enum Event {
+        /**
+         * Text between tags, see {@link TextNode}.
+         */
+        TEXT,
+        /**
+         * See {@link TagType#START}.
+         */
+        START_TAG,
+        /**
+         * See {@link TagType#END}.
+         */
+        END_TAG,
+        /**
+         * See {@link TagType#START_END}.
+         */
+        START_END_TAG,
+        /**
+         * See {@link XmlHeader}.
+         */
+        XML_HEADER,
+        /**
+         * See {@link EmptyTagNode}.
+         */
+        EMPTY_TAG,
+        /**
+         * A comment in raw-text mode, see {@link CommentNode}.
+         * {@link LexerCursor#text()} includes the delimiters like
+         * {@link Node#getRawContent()} does.
+         */
+        COMMENT,
+        /**
+         * A CDATA section in raw-text mode, see {@link CDataNode}.
+         * {@link LexerCursor#text()} includes the delimiters like
+         * {@link Node#getRawContent()} does.
+         */
+        CDATA,
+        /**
+         * See {@link UnknownTagNode}.
+         */
+        UNKNOWN_TAG,
+        /**
+         * There are no more tokens.
+         */
+        END_DOCUMENT;
+        
+        /**
+         * Returns <code>true</code> if the tag accessors of
+         * {@link LexerCursor} may be used for this event.
+         */
+        public boolean isTag() {
+            return this == START_TAG || this == END_TAG || this == START_END_TAG || this == XML_HEADER;
+        }
+    }
+}
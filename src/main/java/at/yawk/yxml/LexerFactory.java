@@ -0,0 +1,164 @@
+package at.yawk.yxml;
+
+import java.io.Reader;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Creates {@link Lexer}s with common settings and recycles them. A lexer that
+ * is {@link #release(Lexer) released} after use is {@link Lexer#reset(Reader)
+ * reset} and handed out again by the next call to {@link #create(Reader)},
+ * together with its buffer, so lexing many small documents does not allocate
+ * new lexer state for each one. All lexers share one {@link SymbolTable}.
+ * <p>
+ * Instances are thread-safe. The pool is shared by all threads instead of
+ * being thread-local, so lexers are also reused between virtual threads.
+ */
+public class LexerFactory {
+    private static final int DEFAULT_MAX_POOL_SIZE = 64;
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    /**
+     * Lexers whose buffer grew beyond this size for a large document get a
+     * new buffer before they are pooled.
+     */
+    private static final int MAX_POOLED_BUFFER_SIZE = 1024 * 1024;
+    
+    private final BlockingQueue<Lexer> pool;
+    
+    private volatile boolean cleanupWhitespace = false;
+    private volatile boolean zeroCopy = false;
+    private volatile boolean rawText = false;
+    private volatile SymbolTable symbolTable = new SymbolTable();
+    private volatile ParseListener parseListener = null;
+    
+    public LexerFactory() {
+        this(DEFAULT_MAX_POOL_SIZE);
+    }
+    
+    /**
+     * Create a factory that keeps at most the given number of unused lexers.
+     */
+    public LexerFactory(int maxPoolSize) {
+        this.pool = new ArrayBlockingQueue<Lexer>(maxPoolSize);
+    }
+    
+    /**
+     * Returns a pooled or new lexer reading from the given reader, configured
+     * with the current settings of this factory.
+     */
+    public Lexer create(Reader reader) {
+        Lexer lexer = pool.poll();
+        if (lexer == null) {
+            lexer = new Lexer(reader);
+        } else {
+            lexer.reset(reader);
+        }
+        lexer.setCleanupWhitespace(cleanupWhitespace);
+        lexer.setZeroCopy(zeroCopy);
+        lexer.setRawText(rawText);
+        lexer.setSymbolTable(symbolTable);
+        lexer.setParseListener(parseListener);
+        return lexer;
+    }
+    
+    /**
+     * Return a lexer that is no longer used to the pool. Its reader is not
+     * closed. Nodes returned by it remain valid. Lexers of subclasses and
+     * lexers that do not fit into the pool anymore are discarded.
+     */
+    public void release(Lexer lexer) {
+        if (lexer.getClass() != Lexer.class) {
+            return;
+        }
+        lexer.reset(null);
+        if (lexer.buffer.length > MAX_POOLED_BUFFER_SIZE) {
+            lexer.buffer = new char[DEFAULT_BUFFER_SIZE];
+        }
+        pool.offer(lexer);
+    }
+    
+    /**
+     * @see Lexer#isCleanupWhitespace()
+     */
+    public boolean isCleanupWhitespace() {
+        return cleanupWhitespace;
+    }
+    
+    /**
+     * Applies to lexers created afterwards.
+     * 
+     * @see Lexer#setCleanupWhitespace(boolean)
+     */
+    public void setCleanupWhitespace(boolean cleanupWhitespace) {
+        this.cleanupWhitespace = cleanupWhitespace;
+    }
+    
+    /**
+     * @see Lexer#isZeroCopy()
+     */
+    public boolean isZeroCopy() {
+        return zeroCopy;
+    }
+    
+    /**
+     * Applies to lexers created afterwards.
+     * 
+     * @see Lexer#setZeroCopy(boolean)
+     */
+    public void setZeroCopy(boolean zeroCopy) {
+        this.zeroCopy = zeroCopy;
+    }
+    
+    /**
+     * @see Lexer#isRawText()
+     */
+    public boolean isRawText() {
+        return rawText;
+    }
+    
+    /**
+     * Applies to lexers created afterwards.
+     * 
+     * @see Lexer#setRawText(boolean)
+     */
+    public void setRawText(boolean rawText) {
+        this.rawText = rawText;
+    }
+    
+    /**
+     * The table shared by all lexers of this factory.
+     * 
+     * @see Lexer#getSymbolTable()
+     */
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+    
+    /**
+     * Applies to lexers created afterwards.
+     * 
+     * @see Lexer#setSymbolTable(SymbolTable)
+     */
+    public void setSymbolTable(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+    }
+    
+    /**
+     * The listener shared by all lexers of this factory, which must be
+     * thread-safe if the lexers are used on different threads.
+     * 
+     * @see Lexer#getParseListener()
+     */
+    public ParseListener getParseListener() {
+        return parseListener;
+    }
+    
+    /**
+     * Applies to lexers created afterwards.
+     * 
+     * @see Lexer#setParseListener(ParseListener)
+     */
+    public void setParseListener(ParseListener parseListener) {
+        this.parseListener = parseListener;
+    }
+}
@@ -0,0 +1,216 @@
+package at.yawk.yxml;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * {@link ParseListener} that sums up the statistics of any number of lexers
+ * and DOM parsers. Instances are thread-safe and can be published through JMX
+ * with {@link #register(String)}.
+ * <p>
+ * Malformed input shows up as {@link #getUnknownTags() unknown tags},
+ * {@link #getEmptyTags() empty tags} and
+ * {@link #getUnmatchedEndTags() unmatched end tags}.
+ */
+public class LexerMetrics implements ParseListener, LexerMetricsMBean {
+    private final AtomicLong charactersRead = new AtomicLong();
+    private final AtomicLong textNodes = new AtomicLong();
+    private final AtomicLong tagNodes = new AtomicLong();
+    private final AtomicLong xmlHeaders = new AtomicLong();
+    private final AtomicLong comments = new AtomicLong();
+    private final AtomicLong cdataSections = new AtomicLong();
+    private final AtomicLong unknownTags = new AtomicLong();
+    private final AtomicLong emptyTags = new AtomicLong();
+    private final AtomicLong attributes = new AtomicLong();
+    private final AtomicLong unmatchedEndTags = new AtomicLong();
+    private final AtomicLong documents = new AtomicLong();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+    private final AtomicLong parseTimeNanos = new AtomicLong();
+    private final AtomicLong maxParseTimeNanos = new AtomicLong();
+    
+    /**
+     * Register these metrics with the platform MBean server under the name
+     * <code>at.yawk.yxml:type=LexerMetrics,name=&lt;name&gt;</code>.
+     * 
+     * @return the name they were registered under.
+     */
+    public ObjectName register(String name) throws JMException {
+        final ObjectName objectName = new ObjectName("at.yawk.yxml:type=LexerMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+    
+    @Override
+    public void charactersRead(int count) {
+        charactersRead.addAndGet(count);
+    }
+    
+    @Override
+    public void nodeLexed(Node node) {
+        if (node instanceof TextNode) {
+            textNodes.incrementAndGet();
+        } else if (node instanceof XmlHeader) {
+            xmlHeaders.incrementAndGet();
+        } else if (node instanceof TagNode) {
+            tagNodes.incrementAndGet();
+        } else if (node instanceof CommentNode) {
+            comments.incrementAndGet();
+        } else if (node instanceof CDataNode) {
+            cdataSections.incrementAndGet();
+        } else if (node instanceof UnknownTagNode) {
+            unknownTags.incrementAndGet();
+        } else if (node instanceof EmptyTagNode) {
+            emptyTags.incrementAndGet();
+        }
+    }
+    
+    @Override
+    public void attributesParsed(TagNode tag, int count) {
+        attributes.addAndGet(count);
+    }
+    
+    @Override
+    public void unmatchedEndTag(TagNode tag) {
+        unmatchedEndTags.incrementAndGet();
+    }
+    
+    @Override
+    public void documentParsed(int maxDepth, long nanos) {
+        documents.incrementAndGet();
+        parseTimeNanos.addAndGet(nanos);
+        int currentDepth;
+        while (maxDepth > (currentDepth = this.maxDepth.get()) && !this.maxDepth.compareAndSet(currentDepth, maxDepth));
+        long currentNanos;
+        while (nanos > (currentNanos = maxParseTimeNanos.get()) && !maxParseTimeNanos.compareAndSet(currentNanos, nanos));
+    }
+    
+    /**
+     * Characters (or bytes) read by all lexers.
+     */
+    @Override
+    public long getCharactersRead() {
+        return charactersRead.get();
+    }
+    
+    @Override
+    public long getTextNodes() {
+        return textNodes.get();
+    }
+    
+    /**
+     * Tags that are neither {@link XmlHeader}s nor unknown or empty tags.
+     */
+    @Override
+    public long getTagNodes() {
+        return tagNodes.get();
+    }
+    
+    @Override
+    public long getXmlHeaders() {
+        return xmlHeaders.get();
+    }
+    
+    /**
+     * Comments lexed in {@link Lexer#setRawText(boolean) raw-text mode}.
+     */
+    @Override
+    public long getComments() {
+        return comments.get();
+    }
+    
+    /**
+     * CDATA sections lexed in {@link Lexer#setRawText(boolean) raw-text
+     * mode}.
+     */
+    @Override
+    public long getCDataSections() {
+        return cdataSections.get();
+    }
+    
+    /**
+     * Tags that do not start with a valid name, such as doctypes and, outside
+     * of raw-text mode, comments, but also stray <code>&lt;</code>
+     * characters.
+     */
+    @Override
+    public long getUnknownTags() {
+        return unknownTags.get();
+    }
+    
+    /**
+     * Tags without any content (<code>&lt;&gt;</code>).
+     */
+    @Override
+    public long getEmptyTags() {
+        return emptyTags.get();
+    }
+    
+    /**
+     * Attributes of all tags whose attributes were parsed.
+     */
+    @Override
+    public long getAttributes() {
+        return attributes.get();
+    }
+    
+    @Override
+    public long getUnmatchedEndTags() {
+        return unmatchedEndTags.get();
+    }
+    
+    /**
+     * Documents parsed by DOM parsers.
+     */
+    @Override
+    public long getDocuments() {
+        return documents.get();
+    }
+    
+    /**
+     * The deepest nesting of any document parsed by a DOM parser.
+     */
+    @Override
+    public int getMaxDepth() {
+        return maxDepth.get();
+    }
+    
+    /**
+     * Total time spent by DOM parsers.
+     */
+    @Override
+    public long getParseTimeNanos() {
+        return parseTimeNanos.get();
+    }
+    
+    /**
+     * Time spent on the slowest document parsed by a DOM parser.
+     */
+    @Override
+    public long getMaxParseTimeNanos() {
+        return maxParseTimeNanos.get();
+    }
+    
+    /**
+     * Set all counters to zero.
+     */
+    @Override
+    public void reset() {
+        charactersRead.set(0);
+        textNodes.set(0);
+        tagNodes.set(0);
+        xmlHeaders.set(0);
+        comments.set(0);
+        cdataSections.set(0);
+        unknownTags.set(0);
+        emptyTags.set(0);
+        attributes.set(0);
+        unmatchedEndTags.set(0);
+        documents.set(0);
+        maxDepth.set(0);
+        parseTimeNanos.set(0);
+        maxParseTimeNanos.set(0);
+    }
+}
@@ -0,0 +1,36 @@
+package at.yawk.yxml;
+
+/**
+ * JMX interface of {@link LexerMetrics}.
+ */
+public interface LexerMetricsMBean {
+    long getCharactersRead();
+    
+    long getTextNodes();
+    
+    long getTagNodes();
+    
+    long getXmlHeaders();
+    
+    long getComments();
+    
+    long getCDataSections();
+    
+    long getUnknownTags();
+    
+    long getEmptyTags();
+    
+    long getAttributes();
+    
+    long getUnmatchedEndTags();
+    
+    long getDocuments();
+    
+    int getMaxDepth();
+    
+    long getParseTimeNanos();
+    
+    long getMaxParseTimeNanos();
+    
+    void reset();
+}
@@ -0,0 +1,95 @@
+package at.yawk.yxml;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * {@link Spliterator} implementation for {@link Lexer}. Nodes are only read
+ * from the lexer when they are requested, so short-circuiting stream
+ * operations stop reading the input as soon as they are done. IO errors are
+ * thrown as {@link UncheckedIOException}.
+ * <p>
+ * {@link #trySplit()} reads a batch of nodes into an array and returns a
+ * spliterator over that batch. The batch size grows with every split, so
+ * parallel streams can process the nodes while this spliterator continues
+ * reading.
+ * 
+ * @see Lexer#stream()
+ */
+public class LexerSpliterator implements Spliterator<Node> {
+    private static final int BATCH_UNIT = 1 << 10;
+    private static final int MAX_BATCH = 1 << 25;
+    
+    private final Lexer lexer;
+    private boolean exhausted = false;
+    private int batch = 0;
+    
+    public LexerSpliterator(Lexer lexer) {
+        this.lexer = lexer;
+    }
+    
+    @Override
+    public boolean tryAdvance(Consumer<? super Node> action) {
+        final Node node = nextNode();
+        if (node == null) {
+            return false;
+        }
+        action.accept(node);
+        return true;
+    }
+    
+    @Override
+    public void forEachRemaining(Consumer<? super Node> action) {
+        Node node;
+        while ((node = nextNode()) != null) {
+            action.accept(node);
+        }
+    }
+    
+    @Override
+    public Spliterator<Node> trySplit() {
+        final int size = Math.min(batch + BATCH_UNIT, MAX_BATCH);
+        final Node[] nodes = new Node[size];
+        int count = 0;
+        Node node;
+        while (count < size && (node = nextNode()) != null) {
+            nodes[count++] = node;
+        }
+        if (count == 0) {
+            return null;
+        }
+        batch = count;
+        return Spliterators.spliterator(nodes, 0, count, ORDERED | NONNULL);
+    }
+    
+    @Override
+    public long estimateSize() {
+        return exhausted ? 0 : Long.MAX_VALUE;
+    }
+    
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+    
+    /**
+     * Returns the next node or <code>null</code> if the lexer is exhausted.
+     */
+    private Node nextNode() {
+        if (exhausted) {
+            return null;
+        }
+        try {
+            return lexer.next();
+        } catch (EOFException e) {
+            exhausted = true;
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -11,17 +11,33 @@ import at.yawk.yxml.TagNode.TagType;
  * Any node in an XML document.
  */
 public abstract class Node {
-    private String content;
+    private CharSequence content;
     
     public Node(String content) {
         this.setContent(content);
     }
     
+    Node(CharSequence content) {
+        this.content = content;
+    }
+    
     /**
      * Returns the raw content of this node, without any parsing or formatting
      * applied to it.
      */
     public String getRawContent() {
+        return content == null ? null : content.toString();
+    }
+    
+    /**
+     * Returns the raw content of this node as a {@link CharSequence}. If this
+     * node was created by a {@link Lexer} in zero-copy mode, this is a view of
+     * the lexer buffer and no {@link String} is created until
+     * {@link #getRawContent()} or {@link CharSequence#toString()} is called.
+     * 
+     * @see Lexer#setZeroCopy(boolean)
+     */
+    public CharSequence getContentView() {
         return content;
     }
     
@@ -29,6 +45,10 @@ public abstract class Node {
         this.content = content;
     }
     
+    void setContentView(CharSequence content) {
+        this.content = content;
+    }
+    
     // compatibility
     
     /**
@@ -121,10 +141,16 @@ public abstract class Node {
     }
     
     /**
-     * @deprecated Use {@link TagNode#getAttributes()} instead.
+     * Returns the value of the attribute with the given key, the last one of
+     * duplicate attributes. Overridden by {@link TagNode#getAttribute(String)}.
+     * 
+     * @throws IllegalStateException
+     *             if this is not a tag.
+     * @deprecated Use {@link TagNode#getAttribute(String)} instead.
      */
     @Deprecated
     public String getAttribute(String key) {
-        return getAttributesMap().get(key);
+        // overridden by TagNode
+        throw new IllegalStateException("Not a tag");
     }
 }
@@ -0,0 +1,295 @@
+package at.yawk.yxml;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lexes large documents on multiple threads. The input is cut into chunks
+ * that are each lexed by a {@link ByteBufferLexer} on a {@link ForkJoinPool},
+ * and the resulting nodes are returned in document order, exactly as a single
+ * {@link ByteBufferLexer} over the whole input would return them.
+ * <p>
+ * Chunks are only cut directly after a <code>&lt;</code> that starts a tag.
+ * Such a position is found by searching for the first <code>&gt;</code> after
+ * the desired chunk size and then the first <code>&lt;</code> after that: no
+ * matter where the search started, the lexer is never inside a tag at that
+ * point. If the input contains no such position, the chunk simply grows.
+ * <p>
+ * The content of every node is decoded on the worker threads. Parsing the tag
+ * names and attributes is still left to the consumer.
+ */
+public class ParallelLexer implements Iterable<Node> {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+    private static final int PROBE_SIZE = 64 * 1024;
+    
+    private final ByteBuffer bytes;
+    private final FileChannel channel;
+    private final long start;
+    private final long size;
+    private final Charset charset;
+    
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private boolean cleanupWhitespace = false;
+    private SymbolTable symbolTable = new SymbolTable();
+    
+    /**
+     * Lex the remaining bytes of the given buffer as UTF-8.
+     */
+    public ParallelLexer(ByteBuffer bytes) {
+        this(bytes, UTF_8);
+    }
+    
+    /**
+     * Lex the remaining bytes of the given buffer.
+     * 
+     * @throws IllegalArgumentException
+     *             if the given charset is not supported.
+     * @see ByteBufferLexer#ByteBufferLexer(ByteBuffer, Charset)
+     */
+    public ParallelLexer(ByteBuffer bytes, Charset charset) {
+        this.bytes = bytes.slice();
+        this.channel = null;
+        this.start = 0;
+        this.size = this.bytes.limit();
+        this.charset = ByteBufferLexer.checkCharset(charset);
+    }
+    
+    /**
+     * Lex the given file channel from its current position. Each chunk is
+     * mapped into memory separately.
+     * 
+     * @throws IllegalArgumentException
+     *             if the given charset is not supported.
+     * @see ByteBufferLexer#ByteBufferLexer(FileChannel, Charset)
+     */
+    public ParallelLexer(FileChannel channel, Charset charset) throws IOException {
+        this.bytes = null;
+        this.channel = channel;
+        this.start = channel.position();
+        this.size = channel.size();
+        this.charset = ByteBufferLexer.checkCharset(charset);
+    }
+    
+    /**
+     * The pool the chunks are lexed on. Defaults to
+     * {@link ForkJoinPool#commonPool()}.
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+    
+    /**
+     * @see #getPool()
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+    
+    /**
+     * The number of bytes after which a new chunk is started, 4 MiB by default.
+     * Chunks may be larger than this if the input does not allow cutting them.
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+    
+    /**
+     * @see #getChunkSize()
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.chunkSize = chunkSize;
+    }
+    
+    /**
+     * @see Lexer#isCleanupWhitespace()
+     */
+    public boolean isCleanupWhitespace() {
+        return cleanupWhitespace;
+    }
+    
+    /**
+     * @see Lexer#setCleanupWhitespace(boolean)
+     */
+    public void setCleanupWhitespace(boolean cleanupWhitespace) {
+        this.cleanupWhitespace = cleanupWhitespace;
+    }
+    
+    /**
+     * The table used to intern names. Unlike with {@link Lexer}, one table is
+     * shared by the lexers of all chunks.
+     * 
+     * @see Lexer#getSymbolTable()
+     */
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
+    }
+    
+    /**
+     * @see #getSymbolTable()
+     */
+    public void setSymbolTable(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+    }
+    
+    /**
+     * Start lexing and return the nodes in document order. Up to twice as many
+     * chunks as the pool has threads are lexed ahead of the consumer. IO errors
+     * while mapping the input are thrown as {@link UncheckedIOException}.
+     */
+    @Override
+    public Iterator<Node> iterator() {
+        return new NodeIterator();
+    }
+    
+    /**
+     * Returns a sequential {@link Stream} over the nodes of {@link #iterator()}.
+     */
+    public Stream<Node> stream() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+    
+    /**
+     * Find the end of the chunk starting at the given offset: the position
+     * directly after the first tag start following the chunk size.
+     */
+    private long chunkEnd(long chunkStart) throws IOException {
+        if (size - chunkStart <= chunkSize) {
+            return size;
+        }
+        final long tagEnd = indexOf((byte) '>', chunkStart + chunkSize);
+        if (tagEnd == -1) {
+            return size;
+        }
+        final long tagStart = indexOf((byte) '<', tagEnd + 1);
+        if (tagStart == -1) {
+            return size;
+        }
+        return tagStart + 1;
+    }
+    
+    private long indexOf(byte b, long from) throws IOException {
+        if (bytes != null) {
+            for (int i = (int) from; i < size; i++) {
+                if (bytes.get(i) == b) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        for (long probe = from; probe < size; probe += PROBE_SIZE) {
+            final ByteBuffer window = map(probe, Math.min(size, probe + PROBE_SIZE));
+            for (int i = 0; i < window.limit(); i++) {
+                if (window.get(i) == b) {
+                    return probe + i;
+                }
+            }
+        }
+        return -1;
+    }
+    
+    private ByteBuffer map(long from, long to) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+    }
+    
+    private List<Node> lexChunk(long from, long to) throws IOException {
+        final ByteBuffer chunk;
+        if (bytes != null) {
+            final ByteBuffer view = bytes.duplicate();
+            view.limit((int) to);
+            view.position((int) from);
+            chunk = view.slice();
+        } else {
+            chunk = map(from, to);
+        }
+        final ByteBufferLexer lexer = new ByteBufferLexer(chunk, charset);
+        lexer.setCleanupWhitespace(cleanupWhitespace);
+        lexer.setSymbolTable(symbolTable);
+        // every chunk but the first starts directly after a '<'
+        lexer.insideTag = from != start;
+        final List<Node> nodes = new ArrayList<Node>();
+        try {
+            while (true) {
+                final Node node = lexer.next();
+                node.getRawContent();
+                nodes.add(node);
+            }
+        } catch (EOFException e) {}
+        return nodes;
+    }
+    
+    private class NodeIterator implements Iterator<Node> {
+        private final ArrayDeque<ForkJoinTask<List<Node>>> pending = new ArrayDeque<ForkJoinTask<List<Node>>>();
+        private final int maxPending = pool.getParallelism() * 2;
+        private long nextChunk = start;
+        private Iterator<Node> current = Collections.<Node> emptyList().iterator();
+        
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                submitChunks();
+                if (pending.isEmpty()) {
+                    return false;
+                }
+                current = pending.poll().join().iterator();
+            }
+            return true;
+        }
+        
+        @Override
+        public Node next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+        
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+        
+        private void submitChunks() {
+            try {
+                while (pending.size() < maxPending && nextChunk < size) {
+                    final long from = nextChunk;
+                    final long to = chunkEnd(from);
+                    nextChunk = to;
+                    pending.add(pool.submit(new Callable<List<Node>>() {
+                        @Override
+                        public List<Node> call() {
+                            try {
+                                return lexChunk(from, to);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        }
+                    }));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package at.yawk.yxml;
+
+/**
+ * Receives statistics about the work done by a {@link Lexer} or
+ * {@link at.yawk.yxml.dom.DOMParser}, for example to find inputs that are
+ * unusually expensive to parse. Lexers and parsers without a listener do not
+ * collect any of this information.
+ * <p>
+ * Listeners are called on the thread that uses the lexer or parser, so a
+ * listener shared between several of them must be thread-safe.
+ * 
+ * @see LexerMetrics
+ * @see Lexer#setParseListener(ParseListener)
+ */
+public interface ParseListener {
+    /**
+     * Called whenever the lexer consumed input. The count is in characters,
+     * or in bytes for a {@link ByteBufferLexer}.
+     */
+    void charactersRead(int count);
+    
+    /**
+     * Called for every node returned by the lexer. Nodes skipped by
+     * {@link Lexer#setCleanupWhitespace(boolean) whitespace cleanup} are not
+     * reported.
+     */
+    void nodeLexed(Node node);
+    
+    /**
+     * Called once all attributes of a tag returned by the lexer are parsed,
+     * which happens the first time its attribute list is requested or a
+     * lookup by name does not find the attribute. Tags whose attributes are
+     * never needed are not reported.
+     */
+    void attributesParsed(TagNode tag, int count);
+    
+    /**
+     * Called by the DOM parser for an end tag that does not close any open
+     * element.
+     */
+    void unmatchedEndTag(TagNode tag);
+    
+    /**
+     * Called by the DOM parser once a document was parsed completely.
+     * 
+     * @param maxDepth
+     *            the maximum number of elements that were open at the same
+     *            time.
+     * @param nanos
+     *            the time spent parsing the document, including lexing it.
+     */
+    void documentParsed(int maxDepth, long nanos);
+}
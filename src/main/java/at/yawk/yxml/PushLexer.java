@@ -0,0 +1,285 @@
+package at.yawk.yxml;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Lexer that is given its input piece by piece instead of reading it from a
+ * blocking {@link Reader} like {@link Lexer}. Every call to one of the
+ * <code>feed</code> methods passes all nodes that are complete with the new
+ * input to the {@link NodeHandler}; a token that is cut off at the end of the
+ * input is kept until it is completed by a later call or by {@link #finish()}.
+ * This way, a single thread can lex any number of documents that arrive
+ * asynchronously, for example from non-blocking sockets.
+ * <p>
+ * Input can be given as characters or, if a {@link Charset} was passed to the
+ * constructor, as bytes. Multi-byte characters may be split between two
+ * {@link ByteBuffer}s.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public class PushLexer {
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    
+    private final Scanner scanner = new Scanner();
+    private final NodeHandler handler;
+    
+    /**
+     * Characters given to the current {@link #feed(char[], int, int)} call
+     * that were not copied to the lexer buffer yet.
+     */
+    private char[] input = null;
+    private int inputPosition = 0;
+    private int inputLimit = 0;
+    private boolean finished = false;
+    
+    private final CharsetDecoder decoder;
+    private final CharBuffer decoded;
+    /**
+     * Bytes of an incomplete character at the end of the last
+     * {@link #feed(ByteBuffer)} call.
+     */
+    private final ByteBuffer carry;
+    
+    /**
+     * Create a new {@link PushLexer} that is given its input as characters.
+     */
+    public PushLexer(NodeHandler handler) {
+        this.handler = handler;
+        this.decoder = null;
+        this.decoded = null;
+        this.carry = null;
+    }
+    
+    /**
+     * Create a new {@link PushLexer} that may also be given its input as bytes
+     * in the given {@link Charset}. Malformed input is replaced.
+     */
+    public PushLexer(Charset charset, NodeHandler handler) {
+        this.handler = handler;
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.decoded = CharBuffer.allocate(DEFAULT_BUFFER_SIZE);
+        this.carry = ByteBuffer.allocate(64);
+    }
+    
+    /**
+     * Lex the given characters.
+     * 
+     * @throws IllegalStateException
+     *             if {@link #finish()} was already called.
+     */
+    public void feed(char[] chars, int offset, int length) {
+        if (finished) {
+            throw new IllegalStateException("Already finished");
+        }
+        input = chars;
+        inputPosition = offset;
+        inputLimit = offset + length;
+        lexAvailable();
+        input = null;
+    }
+    
+    /**
+     * @see #feed(char[], int, int)
+     */
+    public void feed(char[] chars) {
+        feed(chars, 0, chars.length);
+    }
+    
+    /**
+     * Decode and lex the remaining bytes of the given buffer. All of them are
+     * consumed.
+     * 
+     * @throws IllegalStateException
+     *             if this lexer was created without a {@link Charset} or if
+     *             {@link #finish()} was already called.
+     */
+    public void feed(ByteBuffer bytes) {
+        if (decoder == null) {
+            throw new IllegalStateException("No charset given");
+        }
+        if (finished) {
+            throw new IllegalStateException("Already finished");
+        }
+        // complete the character left over from the last call byte by byte
+        while (carry.position() != 0 && bytes.hasRemaining()) {
+            carry.put(bytes.get());
+            carry.flip();
+            decode(carry, false);
+            carry.compact();
+        }
+        if (carry.position() == 0) {
+            decode(bytes, false);
+            carry.put(bytes);
+        }
+    }
+    
+    /**
+     * Signal the end of the input. The last, possibly incomplete, token is
+     * passed to the handler and the lexer cannot be fed anymore. Calling this
+     * method more than once has no effect.
+     */
+    public void finish() {
+        if (finished) {
+            return;
+        }
+        if (decoder != null) {
+            carry.flip();
+            decode(carry, true);
+            carry.clear();
+            decoder.flush(decoded);
+            passDecoded();
+        }
+        finished = true;
+        lexAvailable();
+    }
+    
+    /**
+     * Returns <code>true</code> once {@link #finish()} was called.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+    
+    private void decode(ByteBuffer in, boolean endOfInput) {
+        while (true) {
+            final CoderResult result = decoder.decode(in, decoded, endOfInput);
+            passDecoded();
+            if (result.isUnderflow()) {
+                return;
+            }
+        }
+    }
+    
+    private void passDecoded() {
+        decoded.flip();
+        feed(decoded.array(), decoded.arrayOffset() + decoded.position(), decoded.remaining());
+        decoded.clear();
+    }
+    
+    private void lexAvailable() {
+        try {
+            while (scanner.scan()) {
+                final Node n = scanner.prepare(scanner.createNode());
+                if (n != null) {
+                    handler.handleNode(n);
+                }
+            }
+        } catch (IOException e) {
+            // never thrown by read
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /**
+     * @see Lexer#isCleanupWhitespace()
+     */
+    public boolean isCleanupWhitespace() {
+        return scanner.isCleanupWhitespace();
+    }
+    
+    /**
+     * @see Lexer#setCleanupWhitespace(boolean)
+     */
+    public void setCleanupWhitespace(boolean cleanupWhitespace) {
+        scanner.setCleanupWhitespace(cleanupWhitespace);
+    }
+    
+    /**
+     * @see Lexer#isZeroCopy()
+     */
+    public boolean isZeroCopy() {
+        return scanner.isZeroCopy();
+    }
+    
+    /**
+     * @see Lexer#setZeroCopy(boolean)
+     */
+    public void setZeroCopy(boolean zeroCopy) {
+        scanner.setZeroCopy(zeroCopy);
+    }
+    
+    /**
+     * @see Lexer#isRawText()
+     */
+    public boolean isRawText() {
+        return scanner.isRawText();
+    }
+    
+    /**
+     * @see Lexer#setRawText(boolean)
+     */
+    public void setRawText(boolean rawText) {
+        scanner.setRawText(rawText);
+    }
+    
+    /**
+     * @see Lexer#getSymbolTable()
+     */
+    public SymbolTable getSymbolTable() {
+        return scanner.getSymbolTable();
+    }
+    
+    /**
+     * @see Lexer#setSymbolTable(SymbolTable)
+     */
+    public void setSymbolTable(SymbolTable symbolTable) {
+        scanner.setSymbolTable(symbolTable);
+    }
+    
+    /**
+     * @see Lexer#getParseListener()
+     */
+    public ParseListener getParseListener() {
+        return scanner.getParseListener();
+    }
+    
+    /**
+     * @see Lexer#setParseListener(ParseListener)
+     */
+    public void setParseListener(ParseListener listener) {
+        scanner.setParseListener(listener);
+    }
+    
+    /**
+     * The scanning state of this lexer. It reads the characters given to the
+     * current <code>feed</code> call and suspends the scan once they are
+     * used up. It is never exposed, so none of the pulling methods of
+     * {@link Lexer} can be called on it.
+     */
+    private final class Scanner extends Lexer {
+        Scanner() {
+            super(DEFAULT_BUFFER_SIZE);
+        }
+        
+        @Override
+        int read(char[] buffer, int offset, int length) {
+            if (input != null && inputPosition < inputLimit) {
+                final int read = Math.min(length, inputLimit - inputPosition);
+                System.arraycopy(input, inputPosition, buffer, offset, read);
+                inputPosition += read;
+                return read;
+            }
+            return finished ? -1 : 0;
+        }
+    }
+    
+    /**
+     * Callback for the nodes lexed by a {@link PushLexer}.
+     */
+    public static interface NodeHandler {
+        /**
+         * Handle a node. The node may be kept after this method returns.
+         */
+        void handleNode(Node node);
+    }
+}
@@ -8,6 +8,10 @@ public class SpecialTagNode extends TagNode {
         super(content);
     }
     
+    SpecialTagNode(CharSequence content) {
+        super(content);
+    }
+    
     @Override
     public TagType getType() {
         return TagType.START_END;
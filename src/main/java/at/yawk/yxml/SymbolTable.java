@@ -0,0 +1,189 @@
+package at.yawk.yxml;
+
+/**
+ * Table of canonical {@link String} instances for tag names and attribute
+ * keys. A document usually only uses a few dozen distinct names, so looking
+ * them up in this table instead of creating a new {@link String} for every tag
+ * saves memory in retained trees and makes most name comparisons identity
+ * comparisons.
+ * <p>
+ * Lookups are done directly on character arrays or sequences and do not
+ * allocate unless the name is new. Instances are thread-safe and may be
+ * shared by any number of lexers; lookups of existing names do not lock. Once
+ * the table holds its maximum number of names, new names are returned as
+ * fresh {@link String}s without being added, which bounds the memory used for
+ * documents with unusual (or hostile) names.
+ * 
+ * @see Lexer#setSymbolTable(SymbolTable)
+ */
+public class SymbolTable {
+    private static final int DEFAULT_MAX_SIZE = 4096;
+    
+    private final int maxSize;
+    /**
+     * Open-addressing hash table. Entries are only ever added, so readers can
+     * probe it without locking: a missing entry is looked up again while
+     * holding the lock before it is added.
+     */
+    private volatile String[] table = new String[64];
+    private int size = 0;
+    
+    public SymbolTable() {
+        this(DEFAULT_MAX_SIZE);
+    }
+    
+    /**
+     * Create a table that holds at most the given number of names.
+     */
+    public SymbolTable(int maxSize) {
+        this.maxSize = maxSize;
+    }
+    
+    /**
+     * Returns the canonical {@link String} with the given characters.
+     */
+    public String intern(char[] chr, int offset, int length) {
+        final int hash = hash(chr, offset, length);
+        final String symbol = find(table, hash, chr, offset, length);
+        return symbol != null ? symbol : add(hash, chr, offset, length);
+    }
+    
+    /**
+     * Returns the canonical {@link String} with the given characters of the
+     * given sequence.
+     */
+    public String intern(CharSequence s, int offset, int length) {
+        final int hash = hash(s, offset, length);
+        final String symbol = find(table, hash, s, offset, length);
+        if (symbol != null) {
+            return symbol;
+        }
+        final char[] chr = new char[length];
+        for (int i = 0; i < length; i++) {
+            chr[i] = s.charAt(offset + i);
+        }
+        return add(hash, chr, 0, length);
+    }
+    
+    /**
+     * Returns the canonical {@link String} equal to the given string.
+     */
+    public String intern(String s) {
+        return intern(s, 0, s.length());
+    }
+    
+    /**
+     * The number of names in this table.
+     */
+    public synchronized int size() {
+        return size;
+    }
+    
+    private synchronized String add(int hash, char[] chr, int offset, int length) {
+        String[] table = this.table;
+        final String existing = find(table, hash, chr, offset, length);
+        if (existing != null) {
+            return existing;
+        }
+        final String symbol = new String(chr, offset, length);
+        if (size >= maxSize) {
+            return symbol;
+        }
+        if ((size + 1) * 2 > table.length) {
+            final String[] grown = new String[table.length * 2];
+            for (String s : table) {
+                if (s != null) {
+                    insert(grown, s);
+                }
+            }
+            table = grown;
+        }
+        // Strings are immutable, so readers either see null or the complete
+        // string
+        insert(table, symbol);
+        this.table = table;
+        size++;
+        return symbol;
+    }
+    
+    private static String find(String[] table, int hash, char[] chr, int offset, int length) {
+        final int mask = table.length - 1;
+        for (int i = hash & mask;; i = (i + 1) & mask) {
+            final String s = table[i];
+            if (s == null) {
+                return null;
+            }
+            if (s.hashCode() == hash && regionEquals(s, chr, offset, length)) {
+                return s;
+            }
+        }
+    }
+    
+    private static String find(String[] table, int hash, CharSequence chr, int offset, int length) {
+        final int mask = table.length - 1;
+        for (int i = hash & mask;; i = (i + 1) & mask) {
+            final String s = table[i];
+            if (s == null) {
+                return null;
+            }
+            if (s.hashCode() == hash && regionEquals(s, chr, offset, length)) {
+                return s;
+            }
+        }
+    }
+    
+    private static void insert(String[] table, String s) {
+        final int mask = table.length - 1;
+        int i = s.hashCode() & mask;
+        while (table[i] != null) {
+            i = (i + 1) & mask;
+        }
+        table[i] = s;
+    }
+    
+    /**
+     * Same hash as {@link String#hashCode()}.
+     */
+    private static int hash(char[] chr, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + chr[i];
+        }
+        return hash;
+    }
+    
+    /**
+     * @see #hash(char[], int, int)
+     */
+    private static int hash(CharSequence chr, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + chr.charAt(i);
+        }
+        return hash;
+    }
+    
+    private static boolean regionEquals(String s, char[] chr, int offset, int length) {
+        if (s.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (s.charAt(i) != chr[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static boolean regionEquals(String s, CharSequence chr, int offset, int length) {
+        if (s.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (s.charAt(i) != chr.charAt(offset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -8,20 +8,60 @@ import java.util.List;
  * Any tag in an XML document.
  */
 public class TagNode extends Node {
-    private boolean parsed = false;
+    /**
+     * Tags with at least this many attributes get an {@link #attributeIndex}
+     * on the first lookup by name, smaller ones are scanned.
+     */
+    private static final int MIN_INDEXED_ATTRIBUTES = 8;
+    
+    private boolean nameParsed = false;
     private TagType type;
-    private String tagName;
-    private List<Attribute> attributes;
+    private CharSequence tagName;
+    /**
+     * Length of the content up to the end of the tag name.
+     */
+    private int nameEnd;
+    /**
+     * The attributes parsed so far, <code>null</code> until the first one is
+     * requested.
+     */
+    private List<Attribute> attributes = null;
+    /**
+     * Scans the remaining attributes while only some of them are parsed.
+     */
+    private TagTokenizer attributeScanner = null;
+    /**
+     * View of {@link #attributes}, set once all of them are parsed.
+     */
+    private List<Attribute> attributesView = null;
+    /**
+     * Open-addressed hash table of attribute positions plus one by key, zero
+     * marking empty slots. Its size is a power of two at least twice the
+     * attribute count. <code>null</code> until needed.
+     */
+    private int[] attributeIndex = null;
+    /**
+     * Table to intern names with, set by the {@link Lexer}.
+     */
+    SymbolTable symbols = null;
+    /**
+     * Listener of the {@link Lexer} that created this tag or <code>null</code>.
+     */
+    ParseListener listener = null;
     
     public TagNode(String content) {
         super(content);
     }
     
+    TagNode(CharSequence content) {
+        super(content);
+    }
+    
     /**
      * Return the type this tag is of.
      */
     public TagType getType() {
-        parseIfNecessary();
+        parseNameIfNecessary();
         return type;
     }
     
@@ -30,7 +70,19 @@ public class TagNode extends Node {
      * value is recommended in most cases.
      */
     public String getTagName() {
-        parseIfNecessary();
+        parseNameIfNecessary();
+        return tagName.toString();
+    }
+    
+    /**
+     * {@link CharSequence} variant of {@link #getTagName()}. This is a view of
+     * the lexer buffer if this tag was created in zero-copy mode by a lexer
+     * without symbol table.
+     * 
+     * @see Node#getContentView()
+     */
+    public CharSequence getTagNameView() {
+        parseNameIfNecessary();
         return tagName;
     }
     
@@ -39,64 +91,205 @@ public class TagNode extends Node {
      * document.
      */
     public List<Attribute> getAttributes() {
-        parseIfNecessary();
-        return Collections.unmodifiableList(attributes);
+        if (attributesView == null) {
+            parseAttributes(null);
+        }
+        return attributesView;
+    }
+    
+    /**
+     * Returns the value of the attribute with the given name or
+     * <code>null</code> if there is no such attribute or it has no value.
+     * Names are compared exactly. Of duplicate attributes, the last one is
+     * used, as in {@link #getAttributesMap()}.
+     * 
+     * @see #hasAttribute(String)
+     */
+    @Override
+    @SuppressWarnings("deprecation")
+    public String getAttribute(String name) {
+        if (attributesView == null) {
+            // a later attribute may have the same name
+            parseAttributes(null);
+        }
+        final Attribute attribute = findAttribute(name);
+        return attribute == null ? null : attribute.getValue();
+    }
+    
+    /**
+     * Returns <code>true</code> if this tag has an attribute with the given
+     * name, with or without a value. Only the attributes up to the first one
+     * with that name are parsed.
+     */
+    public boolean hasAttribute(String name) {
+        if (attributesView == null) {
+            final List<Attribute> attributes = this.attributes;
+            if (attributes != null) {
+                for (int i = 0; i < attributes.size(); i++) {
+                    if (attributes.get(i).getKey().equals(name)) {
+                        return true;
+                    }
+                }
+            }
+            return parseAttributes(name) != null;
+        }
+        return findAttribute(name) != null;
+    }
+    
+    /**
+     * Returns the last attribute with the given name. All attributes must be
+     * parsed.
+     */
+    private Attribute findAttribute(String name) {
+        final List<Attribute> attributes = this.attributes;
+        final int count = attributes.size();
+        if (count < MIN_INDEXED_ATTRIBUTES) {
+            for (int i = count - 1; i >= 0; i--) {
+                final Attribute attribute = attributes.get(i);
+                if (attribute.getKey().equals(name)) {
+                    return attribute;
+                }
+            }
+            return null;
+        }
+        int[] index = attributeIndex;
+        if (index == null) {
+            index = attributeIndex = buildIndex(attributes);
+        }
+        final int mask = index.length - 1;
+        for (int slot = hash(name) & mask;; slot = (slot + 1) & mask) {
+            final int entry = index[slot];
+            if (entry == 0) {
+                return null;
+            }
+            final Attribute attribute = attributes.get(entry - 1);
+            if (attribute.getKey().equals(name)) {
+                return attribute;
+            }
+        }
+    }
+    
+    private static int[] buildIndex(List<Attribute> attributes) {
+        final int count = attributes.size();
+        final int[] index = new int[Integer.highestOneBit(count) * 4];
+        final int mask = index.length - 1;
+        for (int i = 0; i < count; i++) {
+            final String key = attributes.get(i).getKey();
+            int slot = hash(key) & mask;
+            while (index[slot] != 0 && !attributes.get(index[slot] - 1).getKey().equals(key)) {
+                slot = (slot + 1) & mask;
+            }
+            // a later duplicate replaces the earlier one
+            index[slot] = i + 1;
+        }
+        return index;
+    }
+    
+    private static int hash(String name) {
+        final int h = name.hashCode();
+        return h ^ (h >>> 16);
     }
     
-    private void parseIfNecessary() {
-        if (!parsed) {
-            parse();
-            parsed = true;
+    private void parseNameIfNecessary() {
+        if (!nameParsed) {
+            parseName();
+            nameParsed = true;
         }
     }
     
-    private void parse() {
-        char[] chr = getRawContent().toCharArray();
-        if (chr[0] == '/') {
+    /**
+     * Determine type and name of this tag, which does not require tokenizing
+     * the attributes.
+     */
+    private void parseName() {
+        final CharSequence content = getContentView();
+        final int length = content.length();
+        if (length != 0 && content.charAt(0) == '/') {
             type = TagType.END;
-        } else if (chr[chr.length - 1] == '/') {
+        } else if (length != 0 && content.charAt(length - 1) == '/') {
             type = TagType.START_END;
         } else {
             type = TagType.START;
         }
-        int i = 0;
-        {
-            for (; i < chr.length && !XmlUtil.isWhitespace(chr[i]); i++);
-            boolean endTag = type == TagType.END;
-            tagName = new String(chr, endTag ? 1 : 0, endTag ? i - 1 : i);
+        int end = 0;
+        while (end < length && !XmlUtil.isWhitespace(content.charAt(end))) {
+            end++;
         }
-        int len = chr.length;
-        if (type == TagType.START_END) {
-            len--;
+        nameEnd = end;
+        final int start = type == TagType.END ? 1 : 0;
+        if (content instanceof CharSlice) {
+            // in zero-copy mode, the name is a view of the same buffer as the
+            // content
+            final CharSlice slice = (CharSlice) content;
+            tagName = name(slice.array, slice.offset + start, end - start, true);
+        } else if (symbols == null) {
+            tagName = content.toString().substring(start, end);
+        } else {
+            tagName = symbols.intern(content, start, end - start);
         }
-        attributes = new ArrayList<Attribute>();
-        while (i < len) {
-            for (; i < len && XmlUtil.isWhitespace(chr[i]); i++);
-            int attributeNameStart = i;
-            for (; i < len && !XmlUtil.isWhitespace(chr[i]) && chr[i] != '='; i++);
-            String key = new String(chr, attributeNameStart, i - attributeNameStart);
-            String value;
-            if (len > i && chr[i] == '=') {
-                i++;
-                boolean quotes = chr[i] == '\'' || chr[i] == '"';
-                char quotesChar = 0;
-                if (quotes) {
-                    quotesChar = chr[i];
-                    i++;
-                }
-                int startValue = i;
-                for (; i < len && (quotes ? chr[i] != quotesChar : !XmlUtil.isWhitespace(chr[i])); i++);
-                value = new String(chr, startValue, i - startValue);
-                if (quotes) {
-                    i++;
-                }
-            } else {
-                value = null;
-            }
-            if (!key.isEmpty()) {
-                attributes.add(new Attribute(key, value));
+    }
+    
+    /**
+     * Parse attributes until one with the given name is found or, if the name
+     * is <code>null</code>, all of them.
+     * 
+     * @return the attribute with the given name or <code>null</code> if all
+     *         attributes were parsed without finding it.
+     */
+    private Attribute parseAttributes(String name) {
+        parseNameIfNecessary();
+        if (attributes == null) {
+            startAttributes();
+        }
+        final TagTokenizer scanner = attributeScanner;
+        if (scanner == null) {
+            return null;
+        }
+        final char[] chr = scanner.chr;
+        // in zero-copy mode, the attributes are views of the same buffer as
+        // the content
+        final boolean views = getContentView() instanceof CharSlice;
+        while (scanner.nextAttribute()) {
+            final CharSequence key = name(chr, scanner.keyStart, scanner.keyLength, views);
+            final CharSequence value = scanner.valueStart == -1 ? null : section(chr, scanner.valueStart, scanner.valueLength, views);
+            final Attribute attribute = new Attribute(key, value);
+            attributes.add(attribute);
+            if (name != null && attribute.getKey().equals(name)) {
+                return attribute;
             }
         }
+        attributeScanner = null;
+        attributesView = Collections.unmodifiableList(attributes);
+        if (listener != null) {
+            listener.attributesParsed(this, attributes.size());
+        }
+        return null;
+    }
+    
+    private void startAttributes() {
+        final CharSequence content = getContentView();
+        final char[] chr;
+        final int offset;
+        if (content instanceof CharSlice) {
+            chr = ((CharSlice) content).array;
+            offset = ((CharSlice) content).offset;
+        } else {
+            chr = content.toString().toCharArray();
+            offset = 0;
+        }
+        // a trailing slash is not part of the last attribute
+        final int end = offset + content.length() - (type == TagType.START_END ? 1 : 0);
+        attributeScanner = new TagTokenizer();
+        attributeScanner.startAttributes(chr, offset + nameEnd, end);
+        attributes = new ArrayList<Attribute>();
+    }
+    
+    private CharSequence name(char[] chr, int start, int length, boolean view) {
+        return symbols == null ? section(chr, start, length, view) : symbols.intern(chr, start, length);
+    }
+    
+    private static CharSequence section(char[] chr, int start, int length, boolean view) {
+        return view ? new CharSlice(chr, start, length) : new String(chr, start, length);
     }
     
     /**
@@ -135,28 +328,69 @@ public class TagNode extends Node {
      * An attribute immutable.
      */
     public static final class Attribute {
-        private final String key;
-        private final String value;
+        private final CharSequence key;
+        private final CharSequence value;
+        private UnescapedText unescapedValue = null;
         
         public Attribute(String key, String value) {
+            this((CharSequence) key, (CharSequence) value);
+        }
+        
+        Attribute(CharSequence key, CharSequence value) {
             this.key = key;
             this.value = value;
         }
         
         public String getKey() {
-            return key;
+            return key == null ? null : key.toString();
         }
         
         public String getValue() {
+            return value == null ? null : value.toString();
+        }
+        
+        /**
+         * {@link CharSequence} variant of {@link #getKey()}.
+         * 
+         * @see TagNode#getTagNameView()
+         */
+        public CharSequence getKeyView() {
+            return key;
+        }
+        
+        /**
+         * {@link CharSequence} variant of {@link #getValue()}.
+         * 
+         * @see TagNode#getTagNameView()
+         */
+        public CharSequence getValueView() {
             return value;
         }
         
+        /**
+         * Returns the value of this attribute with all entity references
+         * replaced or <code>null</code> if it has no value.
+         * 
+         * @see TextNode#getUnescapedText(EntityNamespace)
+         */
+        public String getUnescapedValue(EntityNamespace entities) {
+            final String value = getValue();
+            if (value == null || value.indexOf('&') == -1) {
+                return value;
+            }
+            final UnescapedText unescaped = UnescapedText.unescape(unescapedValue, value, entities);
+            unescapedValue = unescaped;
+            return unescaped.getText();
+        }
+        
         public String getXmlValue() {
             return getValue() == null ? getKey() : getValue();
         }
         
         @Override
         public int hashCode() {
+            final String key = getKey();
+            final String value = getValue();
             final int prime = 31;
             int result = 1;
             result = prime * result + ((key == null) ? 0 : key.hashCode());
@@ -176,18 +410,20 @@ public class TagNode extends Node {
                 return false;
             }
             Attribute other = (Attribute) obj;
+            final String key = getKey();
+            final String value = getValue();
             if (key == null) {
                 if (other.key != null) {
                     return false;
                 }
-            } else if (!key.equals(other.key)) {
+            } else if (!key.equals(other.getKey())) {
                 return false;
             }
             if (value == null) {
                 if (other.value != null) {
                     return false;
                 }
-            } else if (!value.equals(other.value)) {
+            } else if (!value.equals(other.getValue())) {
                 return false;
             }
             return true;
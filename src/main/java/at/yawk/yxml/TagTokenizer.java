@@ -0,0 +1,150 @@
+package at.yawk.yxml;
+
+import at.yawk.yxml.TagNode.TagType;
+
+/**
+ * Splits the content of a tag (everything between <code>&lt;</code> and
+ * <code>&gt;</code>) into its type, name and attributes without creating any
+ * objects. The results are offsets into the tokenized array and are
+ * overwritten by the next call to {@link #tokenize(char[], int, int)}, so one
+ * instance can be reused for any number of tags.
+ * <p>
+ * Attributes can also be scanned one at a time with {@link #nextAttribute()},
+ * which is how {@link TagNode} parses only as many of them as it needs.
+ */
+final class TagTokenizer {
+    TagType type;
+    int nameStart;
+    int nameLength;
+    int attributeCount;
+    /**
+     * Four entries per attribute: key start, key length, value start and value
+     * length. The value start is <code>-1</code> if the attribute has no value.
+     * Allocated by the first call to {@link #tokenize(char[], int, int)} that
+     * finds an attribute.
+     */
+    int[] attributes = null;
+    
+    /**
+     * The last attribute found by {@link #nextAttribute()}.
+     */
+    int keyStart;
+    int keyLength;
+    int valueStart;
+    int valueLength;
+    
+    /**
+     * The array scanned by {@link #nextAttribute()}, <code>null</code> once
+     * all attributes were found.
+     */
+    char[] chr;
+    private int position;
+    private int end;
+    
+    void tokenize(char[] chr, int offset, int length) {
+        final int end = offset + length;
+        if (chr[offset] == '/') {
+            type = TagType.END;
+        } else if (chr[end - 1] == '/') {
+            type = TagType.START_END;
+        } else {
+            type = TagType.START;
+        }
+        int i = offset;
+        {
+            i = XmlUtil.indexOfWhitespace(chr, i, end);
+            boolean endTag = type == TagType.END;
+            nameStart = endTag ? offset + 1 : offset;
+            nameLength = i - nameStart;
+        }
+        int len = end;
+        if (type == TagType.START_END) {
+            len--;
+        }
+        attributeCount = 0;
+        startAttributes(chr, i, len);
+        while (nextAttribute()) {
+            addAttribute(keyStart, keyLength, valueStart, valueLength);
+        }
+    }
+    
+    /**
+     * Prepare {@link #nextAttribute()} to scan the attributes in the given
+     * range, which starts after the tag name and ends before a trailing
+     * <code>/</code>.
+     */
+    void startAttributes(char[] chr, int from, int to) {
+        this.chr = chr;
+        this.position = from;
+        this.end = to;
+    }
+    
+    /**
+     * Scan the next attribute and store its bounds in {@link #keyStart},
+     * {@link #keyLength}, {@link #valueStart} and {@link #valueLength}.
+     * 
+     * @return <code>false</code> if there are no more attributes.
+     */
+    boolean nextAttribute() {
+        final char[] chr = this.chr;
+        final int len = end;
+        int i = position;
+        while (i < len) {
+            i = XmlUtil.indexOfNonWhitespace(chr, i, len);
+            int attributeNameStart = i;
+            i = XmlUtil.indexOfWhitespaceOrEquals(chr, i, len);
+            int keyLength = i - attributeNameStart;
+            int valueStart;
+            int valueLength;
+            if (len > i && chr[i] == '=') {
+                i++;
+                boolean quotes = i < len && (chr[i] == '\'' || chr[i] == '"');
+                char quotesChar = 0;
+                if (quotes) {
+                    quotesChar = chr[i];
+                    i++;
+                }
+                valueStart = i;
+                if (quotes) {
+                    for (; i < len && chr[i] != quotesChar; i++);
+                } else {
+                    i = XmlUtil.indexOfWhitespace(chr, i, len);
+                }
+                valueLength = i - valueStart;
+                if (quotes) {
+                    i++;
+                }
+            } else {
+                valueStart = -1;
+                valueLength = 0;
+            }
+            if (keyLength != 0) {
+                this.keyStart = attributeNameStart;
+                this.keyLength = keyLength;
+                this.valueStart = valueStart;
+                this.valueLength = valueLength;
+                position = i;
+                return true;
+            }
+        }
+        position = i;
+        this.chr = null;
+        return false;
+    }
+    
+    private void addAttribute(int keyStart, int keyLength, int valueStart, int valueLength) {
+        int base = attributeCount * 4;
+        if (attributes == null) {
+            attributes = new int[16];
+        } else if (base == attributes.length) {
+            final int[] grown = new int[attributes.length * 2];
+            System.arraycopy(attributes, 0, grown, 0, attributes.length);
+            attributes = grown;
+        }
+        attributes[base] = keyStart;
+        attributes[base + 1] = keyLength;
+        attributes[base + 2] = valueStart;
+        attributes[base + 3] = valueLength;
+        attributeCount++;
+    }
+}
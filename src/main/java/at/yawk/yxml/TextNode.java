@@ -4,10 +4,16 @@ package at.yawk.yxml;
  * Node only consisting of raw text.
  */
 public class TextNode extends Node {
+    private UnescapedText unescaped = null;
+    
     public TextNode(String content) {
         super(content);
     }
     
+    TextNode(CharSequence content) {
+        super(content);
+    }
+    
     /**
      * @see #getRawContent()
      */
@@ -15,7 +21,26 @@ public class TextNode extends Node {
         return getRawContent();
     }
     
+    /**
+     * @see #getContentView()
+     */
+    public CharSequence getTextView() {
+        return getContentView();
+    }
+    
+    /**
+     * Returns the text of this node with all entity references replaced, as
+     * by {@link XmlUtil#unescapeXml(String, EntityNamespace)}. The result is
+     * kept until this method is called with a different namespace or the
+     * namespace is modified.
+     */
     public String getUnescapedText(EntityNamespace entities) {
-        return XmlUtil.unescapeXml(getText(), entities);
+        final String text = getText();
+        if (text.indexOf('&') == -1) {
+            return text;
+        }
+        final UnescapedText unescaped = UnescapedText.unescape(this.unescaped, text, entities);
+        this.unescaped = unescaped;
+        return unescaped.getText();
     }
 }
@@ -0,0 +1,35 @@
+package at.yawk.yxml;
+
+/**
+ * Text with its entity references replaced, remembered together with the
+ * {@link EntityTrie} that resolved them. A namespace gets a new trie whenever
+ * its entities change, so the text is still valid as long as the namespace
+ * returns the same trie.
+ */
+final class UnescapedText {
+    private final EntityTrie trie;
+    private final String text;
+    
+    private UnescapedText(EntityTrie trie, String text) {
+        this.trie = trie;
+        this.text = text;
+    }
+    
+    /**
+     * Returns the given cached text if it was unescaped with the current trie
+     * of the given namespace, otherwise unescapes the raw text again. Callers
+     * return text without any <code>&</code> as it is instead, so the
+     * namespace does not load its entities for it.
+     */
+    static UnescapedText unescape(UnescapedText cached, String raw, EntityNamespace entities) {
+        final EntityTrie trie = entities.getTrie();
+        if (cached != null && cached.trie == trie) {
+            return cached;
+        }
+        return new UnescapedText(trie, XmlUtil.unescapeXml(raw, trie));
+    }
+    
+    String getText() {
+        return text;
+    }
+}
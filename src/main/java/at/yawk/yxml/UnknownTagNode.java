@@ -7,4 +7,8 @@ public class UnknownTagNode extends Node {
     public UnknownTagNode(String content) {
         super(content);
     }
+    
+    UnknownTagNode(CharSequence content) {
+        super(content);
+    }
 }
@@ -7,4 +7,8 @@ public class XmlHeader extends SpecialTagNode {
     public XmlHeader(String content) {
         super(content.substring(1, content.length() - 1));
     }
+    
+    XmlHeader(CharSequence content) {
+        super(content.subSequence(1, content.length() - 1));
+    }
 }
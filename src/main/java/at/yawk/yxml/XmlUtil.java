@@ -4,6 +4,36 @@ package at.yawk.yxml;
  * Utility class for XML operations.
  */
 public class XmlUtil {
+    private static final byte WHITESPACE = 1;
+    private static final byte NAME_START = 2;
+    private static final byte NAME = 4;
+    private static final byte EQUALS = 8;
+    
+    /**
+     * Character class flags for every <code>char</code> so a character can be
+     * classified with a single array load instead of a chain of interval
+     * comparisons.
+     */
+    private static final byte[] CLASSES = new byte[Character.MAX_VALUE + 1];
+    
+    static {
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            byte flags = 0;
+            if (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+                flags |= WHITESPACE;
+            }
+            if (computeNameStartCharacter((char) c)) {
+                flags |= NAME_START | NAME;
+            } else if (computeNameCharacter((char) c)) {
+                flags |= NAME;
+            }
+            if (c == '=') {
+                flags |= EQUALS;
+            }
+            CLASSES[c] = flags;
+        }
+    }
+    
     private XmlUtil() {}
     
     /**
@@ -11,7 +41,7 @@ public class XmlUtil {
      * XML standard, otherwise <code>false</code>.
      */
     public static boolean isWhitespace(char c) {
-        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+        return (CLASSES[c] & WHITESPACE) != 0;
     }
     
     /**
@@ -19,6 +49,52 @@ public class XmlUtil {
      * character by the XML standard, otherwise <code>false</code>.
      */
     public static boolean isNameStartCharacter(char c) {
+        return (CLASSES[c] & NAME_START) != 0;
+    }
+    
+    /**
+     * Returns <code>true</code> if the given character is a tag name character
+     * by the XML standard, otherwise <code>false</code>.
+     */
+    public static boolean isNameCharacter(char c) {
+        return (CLASSES[c] & NAME) != 0;
+    }
+    
+    /**
+     * Returns the index of the first whitespace character in the given range
+     * of the array or <code>to</code> if there is none.
+     */
+    public static int indexOfWhitespace(char[] chr, int from, int to) {
+        return indexOfClass(chr, from, to, WHITESPACE);
+    }
+    
+    /**
+     * Returns the index of the first whitespace or <code>=</code> character in
+     * the given range of the array or <code>to</code> if there is none.
+     */
+    public static int indexOfWhitespaceOrEquals(char[] chr, int from, int to) {
+        return indexOfClass(chr, from, to, WHITESPACE | EQUALS);
+    }
+    
+    /**
+     * Returns the index of the first character that is not a whitespace in the
+     * given range of the array or <code>to</code> if there is none.
+     */
+    public static int indexOfNonWhitespace(char[] chr, int from, int to) {
+        final byte[] classes = CLASSES;
+        int i = from;
+        for (; i < to && (classes[chr[i]] & WHITESPACE) != 0; i++);
+        return i;
+    }
+    
+    private static int indexOfClass(char[] chr, int from, int to, int mask) {
+        final byte[] classes = CLASSES;
+        int i = from;
+        for (; i < to && (classes[chr[i]] & mask) == 0; i++);
+        return i;
+    }
+    
+    private static boolean computeNameStartCharacter(char c) {
         if (c == ':' || c == '_') {
             return true;
         }
@@ -46,12 +122,8 @@ public class XmlUtil {
         return false;
     }
     
-    /**
-     * Returns <code>true</code> if the given character is a tag name character
-     * by the XML standard, otherwise <code>false</code>.
-     */
-    public static boolean isNameCharacter(char c) {
-        if (isNameStartCharacter(c)) {
+    private static boolean computeNameCharacter(char c) {
+        if (computeNameStartCharacter(c)) {
             return true;
         }
         if (c == '-' || c == '.' || c == 0xB7) {
@@ -107,22 +179,93 @@ public class XmlUtil {
         }
     }
     
+    /**
+     * Replaces all entity references in the given string with their values.
+     * The string is returned as is if it does not contain any <code>&</code>.
+     * References that cannot be resolved (unknown names or invalid character
+     * values) are kept as they are.
+     */
     public static String unescapeXml(String s, EntityNamespace entities) {
-        final StringBuilder b = new StringBuilder(s.length());
-        final char[] as = s.toCharArray();
-        for (int i = 0; i < as.length; i++) {
-            char c = as[i];
-            if (c == '&') {
-                int j = ++i;
-                for (; i < as.length && as[i] != ';'; i++);
-                b.append(getEntityValue(new String(as, j, i - j), entities));
+        return s.indexOf('&') == -1 ? s : unescapeXml(s, entities.getTrie());
+    }
+    
+    /**
+     * @see #unescapeXml(String, EntityNamespace)
+     */
+    static String unescapeXml(String s, EntityTrie trie) {
+        int i = s.indexOf('&');
+        if (i == -1) {
+            return s;
+        }
+        final int length = s.length();
+        final StringBuilder b = new StringBuilder(length);
+        int copied = 0;
+        while (i != -1) {
+            b.append(s, copied, i);
+            final int nameStart = i + 1;
+            int nameEnd = nameStart;
+            for (; nameEnd < length && s.charAt(nameEnd) != ';' && s.charAt(nameEnd) != '&'; nameEnd++);
+            if ((nameEnd == length || s.charAt(nameEnd) == ';') && appendEntity(b, s, nameStart, nameEnd, trie)) {
+                copied = nameEnd == length ? length : nameEnd + 1;
             } else {
-                b.append(c);
+                // not a reference, keep the ampersand
+                b.append('&');
+                copied = nameStart;
             }
+            i = s.indexOf('&', copied);
         }
+        b.append(s, copied, length);
         return b.toString();
     }
     
+    /**
+     * Appends the value of the entity with the given name to the builder.
+     * Returns <code>false</code> if the entity could not be resolved.
+     */
+    private static boolean appendEntity(StringBuilder b, String s, int start, int end, EntityTrie trie) {
+        if (start < end && s.charAt(start) == '#') {
+            final int codePoint = parseCharacterReference(s, start + 1, end);
+            if (codePoint == -1) {
+                return false;
+            }
+            b.appendCodePoint(codePoint);
+            return true;
+        }
+        final String value = trie.get(s, start, end);
+        if (value == null) {
+            return false;
+        }
+        b.append(value);
+        return true;
+    }
+    
+    /**
+     * Parses the digits of a character reference (after the <code>#</code>)
+     * or returns <code>-1</code> if they are not a valid code point.
+     */
+    private static int parseCharacterReference(String s, int start, int end) {
+        int radix = 10;
+        if (start < end && (s.charAt(start) == 'x' || s.charAt(start) == 'X')) {
+            radix = 16;
+            start++;
+        }
+        if (start == end) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            final int digit = Character.digit(s.charAt(i), radix);
+            if (digit == -1) {
+                return -1;
+            }
+            value = value * radix + digit;
+            if (value > Character.MAX_CODE_POINT) {
+                return -1;
+            }
+        }
+        return value;
+    }
+    
     private static boolean intervalContains(int start, int end, int search) {
         assert start <= end;
         return start <= search && end >= search;
@@ -0,0 +1,274 @@
+package at.yawk.yxml.dom;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import at.yawk.yxml.Node;
+
+/**
+ * Read-only DOM tree that stores its structure in parallel <code>int</code>
+ * arrays instead of one object and one child list per node. Every node is
+ * identified by its index in document order, the root being <code>0</code>.
+ * <p>
+ * {@link #getRoot()} and the other accessors return lightweight
+ * {@link DOMNode} views that are created on demand, so existing code that
+ * works on {@link DOMNode}s can be used with this tree as well. Views of the
+ * same node are equal to each other. Modifying the tree through a view throws
+ * {@link UnsupportedOperationException}.
+ * 
+ * @see DOMParser#parseCompact()
+ */
+public class CompactDOM {
+    private static final int NONE = -1;
+    
+    private Node[] elements = new Node[64];
+    private int[] parents = new int[64];
+    private int[] firstChildren = new int[64];
+    private int[] nextSiblings = new int[64];
+    private int[] previousSiblings = new int[64];
+    /**
+     * Only used while building.
+     */
+    private int[] lastChildren = new int[64];
+    private int size = 0;
+    
+    CompactDOM() {
+        add(NONE, null);
+    }
+    
+    /**
+     * Add a node as last child of the given parent and return its index.
+     */
+    int add(int parent, Node element) {
+        if (size == elements.length) {
+            grow();
+        }
+        final int index = size++;
+        elements[index] = element;
+        parents[index] = parent;
+        firstChildren[index] = NONE;
+        nextSiblings[index] = NONE;
+        previousSiblings[index] = parent == NONE ? NONE : lastChildren[parent];
+        lastChildren[index] = NONE;
+        if (parent != NONE) {
+            if (lastChildren[parent] == NONE) {
+                firstChildren[parent] = index;
+            } else {
+                nextSiblings[lastChildren[parent]] = index;
+            }
+            lastChildren[parent] = index;
+        }
+        return index;
+    }
+    
+    private void grow() {
+        final int capacity = size * 2;
+        elements = copyOf(elements, capacity);
+        parents = copyOf(parents, capacity);
+        firstChildren = copyOf(firstChildren, capacity);
+        nextSiblings = copyOf(nextSiblings, capacity);
+        previousSiblings = copyOf(previousSiblings, capacity);
+        lastChildren = copyOf(lastChildren, capacity);
+    }
+    
+    /**
+     * Trim the arrays to the final size and drop the build-only data.
+     */
+    void finish() {
+        elements = copyOf(elements, size);
+        parents = copyOf(parents, size);
+        firstChildren = copyOf(firstChildren, size);
+        nextSiblings = copyOf(nextSiblings, size);
+        previousSiblings = copyOf(previousSiblings, size);
+        lastChildren = null;
+    }
+    
+    private static Node[] copyOf(Node[] array, int length) {
+        final Node[] copy = new Node[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+        return copy;
+    }
+    
+    private static int[] copyOf(int[] array, int length) {
+        final int[] copy = new int[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+        return copy;
+    }
+    
+    /**
+     * The number of nodes in this tree, including the root.
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * The root of this tree. Its element is <code>null</code>.
+     */
+    public DOMNode getRoot() {
+        return getNode(0);
+    }
+    
+    /**
+     * The node with the given index. Nodes are numbered in document order.
+     */
+    public DOMNode getNode(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        return new View(index);
+    }
+    
+    /**
+     * The element of the node with the given index.
+     */
+    public Node getElement(int index) {
+        return elements[index];
+    }
+    
+    /**
+     * The index of the parent of the given node or <code>-1</code> for the
+     * root.
+     */
+    public int getParent(int index) {
+        return parents[index];
+    }
+    
+    /**
+     * The index of the first child of the given node or <code>-1</code> if it
+     * has none.
+     */
+    public int getFirstChild(int index) {
+        return firstChildren[index];
+    }
+    
+    /**
+     * The index of the next sibling of the given node or <code>-1</code> if it
+     * is the last child of its parent.
+     */
+    public int getNextSibling(int index) {
+        return nextSiblings[index];
+    }
+    
+    /**
+     * The index of the previous sibling of the given node or <code>-1</code>
+     * if it is the first child of its parent.
+     */
+    public int getPreviousSibling(int index) {
+        return previousSiblings[index];
+    }
+    
+    private class View extends DOMNode {
+        private final int index;
+        
+        View(int index) {
+            super(null, Collections.<DOMNode> emptyList(), null);
+            this.index = index;
+        }
+        
+        @Override
+        public DOMNode getParent() {
+            final int parent = parents[index];
+            return parent == NONE ? null : new View(parent);
+        }
+        
+        @Override
+        public List<DOMNode> getChildren() {
+            return new AbstractList<DOMNode>() {
+                @Override
+                public DOMNode get(int i) {
+                    if (i >= 0) {
+                        int child = firstChildren[index];
+                        for (; child != NONE && i > 0; i--) {
+                            child = nextSiblings[child];
+                        }
+                        if (child != NONE) {
+                            return new View(child);
+                        }
+                    }
+                    throw new IndexOutOfBoundsException();
+                }
+                
+                @Override
+                public int size() {
+                    int count = 0;
+                    for (int child = firstChildren[index]; child != NONE; child = nextSiblings[child]) {
+                        count++;
+                    }
+                    return count;
+                }
+                
+                @Override
+                public Iterator<DOMNode> iterator() {
+                    return new Iterator<DOMNode>() {
+                        private int next = firstChildren[index];
+                        
+                        @Override
+                        public boolean hasNext() {
+                            return next != NONE;
+                        }
+                        
+                        @Override
+                        public DOMNode next() {
+                            if (next == NONE) {
+                                throw new NoSuchElementException();
+                            }
+                            final DOMNode node = new View(next);
+                            next = nextSiblings[next];
+                            return node;
+                        }
+                        
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+            };
+        }
+        
+        @Override
+        public DOMNode getPreviousSibling() {
+            final int previous = previousSiblings[index];
+            return previous == NONE ? null : new View(previous);
+        }
+        
+        @Override
+        public DOMNode getNextSibling() {
+            final int next = nextSiblings[index];
+            return next == NONE ? null : new View(next);
+        }
+        
+        @Override
+        public Node getElement() {
+            return elements[index];
+        }
+        
+        @Override
+        public DOMNode appendChild(Node element) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public <W extends DOMNode> W appendChild(W child) {
+            throw new UnsupportedOperationException();
+        }
+        
+        private CompactDOM getDOM() {
+            return CompactDOM.this;
+        }
+        
+        @Override
+        public int hashCode() {
+            return index;
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof View && ((View) obj).getDOM() == getDOM() && ((View) obj).index == index;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package at.yawk.yxml.dom;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import at.yawk.yxml.TagNode;
+import at.yawk.yxml.TagNode.Attribute;
+import at.yawk.yxml.XmlUtil;
+
+/**
+ * Lookup tables from tag names and attributes to the elements of a DOM tree,
+ * built by {@link DOMParser} while parsing. All lists are in document order
+ * and names and values are compared exactly. Of duplicate attributes, only
+ * the last one is indexed.
+ * 
+ * @see DOMParser#setIndexing(boolean)
+ */
+public class DOMIndex {
+    private final Map<String, List<DOMNode>> byTagName = new HashMap<String, List<DOMNode>>();
+    private final Map<String, List<DOMNode>> byAttributeKey = new HashMap<String, List<DOMNode>>();
+    private final Map<String, Map<String, List<DOMNode>>> byAttribute = new HashMap<String, Map<String, List<DOMNode>>>();
+    private final Map<String, List<DOMNode>> byClassName = new HashMap<String, List<DOMNode>>();
+    
+    DOMIndex() {}
+    
+    /**
+     * Add an element to the index. Must be called in document order.
+     */
+    void add(DOMNode node) {
+        final TagNode tag = (TagNode) node.getElement();
+        add(byTagName, tag.getTagName(), node);
+        final List<Attribute> attributes = tag.getAttributes();
+        for (int i = 0; i < attributes.size(); i++) {
+            final Attribute attribute = attributes.get(i);
+            final String key = attribute.getKey();
+            if (isOverridden(attributes, i, key)) {
+                // only the last of duplicate attributes counts, as in
+                // TagNode.getAttribute
+                continue;
+            }
+            final String value = attribute.getValue();
+            add(byAttributeKey, key, node);
+            if (value != null) {
+                Map<String, List<DOMNode>> values = byAttribute.get(key);
+                if (values == null) {
+                    values = new HashMap<String, List<DOMNode>>();
+                    byAttribute.put(key, values);
+                }
+                add(values, value, node);
+                if (key.equals("class")) {
+                    addClassNames(value, node);
+                }
+            }
+        }
+    }
+    
+    private static boolean isOverridden(List<Attribute> attributes, int index, String key) {
+        for (int i = index + 1; i < attributes.size(); i++) {
+            if (attributes.get(i).getKey().equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private void addClassNames(String value, DOMNode node) {
+        int i = 0;
+        while (i < value.length()) {
+            for (; i < value.length() && XmlUtil.isWhitespace(value.charAt(i)); i++);
+            final int start = i;
+            for (; i < value.length() && !XmlUtil.isWhitespace(value.charAt(i)); i++);
+            if (i > start) {
+                final List<DOMNode> nodes = byClassName.get(value.substring(start, i));
+                // do not add elements twice for class="a a"
+                if (nodes == null || nodes.get(nodes.size() - 1) != node) {
+                    add(byClassName, value.substring(start, i), node);
+                }
+            }
+        }
+    }
+    
+    private static void add(Map<String, List<DOMNode>> map, String key, DOMNode node) {
+        List<DOMNode> nodes = map.get(key);
+        if (nodes == null) {
+            nodes = new ArrayList<DOMNode>(1);
+            map.put(key, nodes);
+        }
+        nodes.add(node);
+    }
+    
+    private static List<DOMNode> get(Map<String, List<DOMNode>> map, String key) {
+        final List<DOMNode> nodes = map.get(key);
+        return nodes == null ? Collections.<DOMNode> emptyList() : Collections.unmodifiableList(nodes);
+    }
+    
+    /**
+     * All elements with the given tag name.
+     */
+    public List<DOMNode> getElementsByTagName(String tagName) {
+        return get(byTagName, tagName);
+    }
+    
+    /**
+     * All elements that have an attribute with the given key, regardless of
+     * its value.
+     */
+    public List<DOMNode> getElementsByAttribute(String key) {
+        return get(byAttributeKey, key);
+    }
+    
+    /**
+     * All elements that have an attribute with the given key and value.
+     */
+    public List<DOMNode> getElementsByAttribute(String key, String value) {
+        final Map<String, List<DOMNode>> values = byAttribute.get(key);
+        return values == null ? Collections.<DOMNode> emptyList() : get(values, value);
+    }
+    
+    /**
+     * The first element with the given <code>id</code> attribute or
+     * <code>null</code> if there is none.
+     */
+    public DOMNode getElementById(String id) {
+        final List<DOMNode> nodes = getElementsByAttribute("id", id);
+        return nodes.isEmpty() ? null : nodes.get(0);
+    }
+    
+    /**
+     * All elements that have the given class in their whitespace-separated
+     * <code>class</code> attribute.
+     */
+    public List<DOMNode> getElementsByClassName(String className) {
+        return get(byClassName, className);
+    }
+}
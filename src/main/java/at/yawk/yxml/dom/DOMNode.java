@@ -1,13 +1,15 @@
 package at.yawk.yxml.dom;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import at.yawk.yxml.Node;
 import at.yawk.yxml.TagNode;
-import at.yawk.yxml.TagNode.Attribute;
 
 /**
  * A node in a DOM tree.
@@ -16,6 +18,13 @@ public class DOMNode {
     private final DOMNode parent;
     private final List<DOMNode> children;
     private final Node element;
+    /**
+     * <code>true</code> if this node was appended to its parent by
+     * {@link #appendChild(DOMNode)}, so the sibling links are known.
+     */
+    private boolean linked = false;
+    private DOMNode previousSibling = null;
+    private DOMNode nextSibling = null;
     
     public DOMNode(DOMNode parent, List<DOMNode> children, Node element) {
         assert children != null;
@@ -47,6 +56,47 @@ public class DOMNode {
         return Collections.unmodifiableList(children);
     }
     
+    /**
+     * The sibling right before this node or <code>null</code> if this is the
+     * first child of its parent.
+     */
+    public DOMNode getPreviousSibling() {
+        if (linked) {
+            return previousSibling;
+        }
+        if (parent == null) {
+            return null;
+        }
+        DOMNode previous = null;
+        for (DOMNode sibling : parent.getChildren()) {
+            if (sibling.equals(this)) {
+                return previous;
+            }
+            previous = sibling;
+        }
+        return null;
+    }
+    
+    /**
+     * The sibling right after this node or <code>null</code> if this is the
+     * last child of its parent.
+     */
+    public DOMNode getNextSibling() {
+        if (linked) {
+            return nextSibling;
+        }
+        if (parent == null) {
+            return null;
+        }
+        final Iterator<DOMNode> iterator = parent.getChildren().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().equals(this)) {
+                return iterator.hasNext() ? iterator.next() : null;
+            }
+        }
+        return null;
+    }
+    
     /**
      * The XML element this node is about. May be <code>null</code> if this is
      * the root element.
@@ -67,6 +117,18 @@ public class DOMNode {
      * Append a new {@link DOMNode} to this node and return it.
      */
     public <W extends DOMNode> W appendChild(W child) {
+        final DOMNode node = child;
+        if (node.parent == this) {
+            // link the siblings so they are found without searching the list
+            if (!children.isEmpty()) {
+                final DOMNode last = children.get(children.size() - 1);
+                if (last.parent == this) {
+                    last.nextSibling = node;
+                }
+                node.previousSibling = last;
+            }
+            node.linked = true;
+        }
         children.add(child);
         return child;
     }
@@ -83,26 +145,23 @@ public class DOMNode {
             return Collections.emptyList();
         }
         final List<DOMNode> matches = new ArrayList<DOMNode>();
-        if (deep) {
-            if (matcher.matches(this)) {
-                matches.add(this);
-            }
-            for (DOMNode d : getChildren()) {
-                matches.addAll(d.getChildrenForMatch(matcher, limit - matches.size(), true));
-            }
-        } else {
-            for (DOMNode d : getChildren()) {
-                if (matcher.matches(d)) {
-                    matches.add(d);
-                    if (matches.size() >= limit) {
-                        break;
-                    }
-                }
-            }
+        final Iterator<DOMNode> iterator = iterateChildrenForMatch(matcher, deep);
+        while (matches.size() < limit && iterator.hasNext()) {
+            matches.add(iterator.next());
         }
         return matches;
     }
     
+    /**
+     * Lazy variant of {@link #getChildrenForMatch(DOMMatcher, int, boolean)}
+     * without a limit: the tree is only searched as far as the returned
+     * {@link Iterator} is advanced. Deep searches walk the tree in document
+     * order using an explicit stack, so they work on trees of any depth.
+     */
+    public Iterator<DOMNode> iterateChildrenForMatch(DOMMatcher matcher, boolean deep) {
+        return new MatchIterator(this, matcher, deep);
+    }
+    
     /**
      * Returns the first element found by
      * {@link #getChildrenForMatch(DOMMatcher, int, boolean)} or
@@ -115,6 +174,76 @@ public class DOMNode {
         return l.isEmpty() ? null : l.get(0);
     }
     
+    /**
+     * Pre-order search over the children (and, for deep searches, all
+     * descendants) of a node.
+     */
+    private static class MatchIterator implements Iterator<DOMNode> {
+        private final DOMMatcher matcher;
+        private final boolean deep;
+        /**
+         * Child iterators of the nodes on the path to the current node.
+         */
+        private final ArrayDeque<Iterator<DOMNode>> stack = new ArrayDeque<Iterator<DOMNode>>();
+        private DOMNode root;
+        private DOMNode next = null;
+        
+        MatchIterator(DOMNode root, DOMMatcher matcher, boolean deep) {
+            this.matcher = matcher;
+            this.deep = deep;
+            if (deep) {
+                // the root itself is checked as well
+                this.root = root;
+            } else {
+                stack.push(root.getChildren().iterator());
+            }
+        }
+        
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                final DOMNode node;
+                if (root != null) {
+                    node = root;
+                    root = null;
+                } else {
+                    while (!stack.isEmpty() && !stack.peek().hasNext()) {
+                        stack.pop();
+                    }
+                    if (stack.isEmpty()) {
+                        return false;
+                    }
+                    node = stack.peek().next();
+                }
+                if (deep) {
+                    final List<DOMNode> children = node.getChildren();
+                    if (!children.isEmpty()) {
+                        stack.push(children.iterator());
+                    }
+                }
+                if (matcher.matches(node)) {
+                    next = node;
+                }
+            }
+            return true;
+        }
+        
+        @Override
+        public DOMNode next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final DOMNode node = next;
+            next = null;
+            return node;
+        }
+        
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+    
     /**
      * A matcher that can check {@link DOMNode} objects.
      */
@@ -126,23 +255,30 @@ public class DOMNode {
         boolean matches(DOMNode node);
     }
     
+    /**
+     * Returns a matcher that will match any tags with the exact given name.
+     */
+    public static DOMMatcher getTagNameMatcher(final String tagName) {
+        return new DOMMatcher() {
+            @Override
+            public boolean matches(DOMNode node) {
+                final Node e = node.getElement();
+                return e instanceof TagNode && ((TagNode) e).getTagName().equals(tagName);
+            }
+        };
+    }
+    
     /**
      * Returns a matcher that will match any tags that have an attribute
-     * <code>key</code> with the exact value <code>value</code>.
+     * <code>key</code> with the exact value <code>value</code>. Of duplicate
+     * attributes, the last one is compared.
      */
     public static DOMMatcher getAttributeEqualsMatcher(final String key, final String value) {
         return new DOMMatcher() {
             @Override
             public boolean matches(DOMNode node) {
                 final Node e = node.getElement();
-                if (e instanceof TagNode) {
-                    for (Attribute attribute : ((TagNode) e).getAttributes()) {
-                        if (attribute.getKey().equals(key) && attribute.getValue().equals(value)) {
-                            return true;
-                        }
-                    }
-                }
-                return false;
+                return e instanceof TagNode && value.equals(((TagNode) e).getAttribute(key));
             }
         };
     }
@@ -4,40 +4,113 @@ import java.io.EOFException;
 import java.io.IOException;
 import at.yawk.yxml.Lexer;
 import at.yawk.yxml.Node;
+import at.yawk.yxml.ParseListener;
 import at.yawk.yxml.TagNode;
 import at.yawk.yxml.TagNode.TagType;
+import at.yawk.yxml.dom.DOMNode.DOMMatcher;
 
 public class DOMParser {
     private final Lexer lexer;
     private DOMNode tree = new DOMNode(null);
+    private boolean indexing = false;
+    private DOMIndex index = null;
+    private ParseListener listener = null;
+    /**
+     * Number of open elements and its maximum during the current parse, only
+     * tracked if there is a listener.
+     */
+    private int depth = 0;
+    private int maxDepth = 0;
     
     public DOMParser(Lexer lexer) {
         this.lexer = lexer;
     }
     
+    /**
+     * If set to <code>true</code>, {@link #parse()} and {@link #parseCompact()}
+     * build a {@link DOMIndex} of all elements while parsing. This requires
+     * parsing the attributes of every tag.
+     */
+    public boolean isIndexing() {
+        return indexing;
+    }
+    
+    /**
+     * @see #isIndexing()
+     */
+    public void setIndexing(boolean indexing) {
+        this.indexing = indexing;
+    }
+    
+    /**
+     * The index built by the last call to {@link #parse()} or
+     * {@link #parseCompact()} or <code>null</code> if indexing was disabled.
+     * 
+     * @see #isIndexing()
+     */
+    public DOMIndex getIndex() {
+        return index;
+    }
+    
+    /**
+     * The listener that is informed about unmatched end tags and every parsed
+     * document or <code>null</code> if there is none (the default). To also
+     * receive the statistics of the lexer, set the same listener on it.
+     * 
+     * @see Lexer#setParseListener(ParseListener)
+     */
+    public ParseListener getParseListener() {
+        return listener;
+    }
+    
+    /**
+     * @see #getParseListener()
+     */
+    public void setParseListener(ParseListener listener) {
+        this.listener = listener;
+    }
+    
     public DOMNode parse() throws IOException {
+        final long start = startDocument();
+        index = indexing ? new DOMIndex() : null;
         try {
             while (tree != null) {
                 walk();
             }
         } catch (EOFException e) {}
+        finishDocument(start);
         return tree;
     }
     
     private void walk() throws IOException {
         final Node node = lexer.next();
         if (!(node instanceof TagNode) || ((TagNode) node).getType() == TagType.START_END) {
-            tree.appendChild(node);
+            final DOMNode child = tree.appendChild(node);
+            if (index != null && node instanceof TagNode) {
+                index.add(child);
+            }
         } else {
             TagType type = ((TagNode) node).getType();
             if (type == TagType.START) {
                 tree = tree.appendChild(new DOMNode(tree, node));
+                if (index != null) {
+                    index.add(tree);
+                }
+                if (listener != null) {
+                    opened();
+                }
             } else if (type == TagType.END) {
                 final DOMNode sparent = findParent(tree, ((TagNode) node).getTagName());
                 if (sparent == null) {
                     // invalid end tag, add as regular node
                     tree.appendChild(node);
+                    if (listener != null) {
+                        listener.unmatchedEndTag((TagNode) node);
+                    }
                 } else {
+                    if (listener != null) {
+                        depth -= levels(tree, sparent);
+                    }
                     tree = sparent.getParent();
                 }
             } else {
@@ -46,13 +119,231 @@ public class DOMParser {
         }
     }
     
+    /**
+     * Parse the document into a {@link CompactDOM}. The resulting tree has the
+     * same structure as the one built by {@link #parse()}, but needs far less
+     * memory. Unlike {@link #parse()}, this always returns the whole tree.
+     */
+    public CompactDOM parseCompact() throws IOException {
+        final long start = startDocument();
+        final CompactDOM dom = new CompactDOM();
+        index = indexing ? new DOMIndex() : null;
+        int current = 0;
+        try {
+            while (true) {
+                final Node node = lexer.next();
+                if (!(node instanceof TagNode) || ((TagNode) node).getType() == TagType.START_END) {
+                    final int child = dom.add(current, node);
+                    if (index != null && node instanceof TagNode) {
+                        index.add(dom.getNode(child));
+                    }
+                } else if (((TagNode) node).getType() == TagType.START) {
+                    current = dom.add(current, node);
+                    if (index != null) {
+                        index.add(dom.getNode(current));
+                    }
+                    if (listener != null) {
+                        opened();
+                    }
+                } else {
+                    final String tagName = ((TagNode) node).getTagName();
+                    int sparent = current;
+                    while (sparent > 0 && !((TagNode) dom.getElement(sparent)).getTagName().equals(tagName)) {
+                        sparent = dom.getParent(sparent);
+                    }
+                    if (sparent <= 0) {
+                        // invalid end tag, add as regular node
+                        dom.add(current, node);
+                        if (listener != null) {
+                            listener.unmatchedEndTag((TagNode) node);
+                        }
+                    } else {
+                        if (listener != null) {
+                            for (int closed = current; closed != dom.getParent(sparent); closed = dom.getParent(closed)) {
+                                depth--;
+                            }
+                        }
+                        current = dom.getParent(sparent);
+                    }
+                }
+            }
+        } catch (EOFException e) {}
+        dom.finish();
+        finishDocument(start);
+        return dom;
+    }
+    
+    /**
+     * Parse the document without keeping the whole tree in memory. Every
+     * element whose start tag matches the given tag name is built as a small
+     * tree of its own and passed to the given handler once it is closed.
+     * 
+     * @see #parse(DOMMatcher, SubtreeHandler)
+     */
+    public void parse(String tagName, SubtreeHandler handler) throws IOException {
+        parse(DOMNode.getTagNameMatcher(tagName), handler);
+    }
+    
+    /**
+     * Parse the document without keeping the whole tree in memory. Every
+     * element whose start tag matches the given {@link DOMMatcher} is built as
+     * a tree of its own (with a <code>null</code> parent) and passed to the
+     * given handler once it is closed. Everything outside of matching elements
+     * is discarded, so memory use is bounded by the size of the largest
+     * matching element.
+     * <p>
+     * The matcher is called with a {@link DOMNode} that has neither parent nor
+     * children. Matching elements inside another matching element are part of
+     * the outer subtree and are not reported on their own. End tags are
+     * handled like in {@link #parse()}, so an end tag of an element outside
+     * the current subtree closes it as well.
+     */
+    public void parse(DOMMatcher matcher, SubtreeHandler handler) throws IOException {
+        final long start = startDocument();
+        // ancestors of the current position outside of matching subtrees. They
+        // are not added to their parents so they can be discarded once closed.
+        DOMNode outside = new DOMNode(null);
+        DOMNode subtree = null;
+        DOMNode inside = null;
+        try {
+            while (true) {
+                final Node node = lexer.next();
+                final TagType type = node instanceof TagNode ? ((TagNode) node).getType() : null;
+                if (subtree == null) {
+                    if (type == TagType.START || type == TagType.START_END) {
+                        final DOMNode candidate = new DOMNode(node);
+                        if (type == TagType.START && listener != null) {
+                            opened();
+                        }
+                        if (!matcher.matches(candidate)) {
+                            if (type == TagType.START) {
+                                outside = new DOMNode(outside, node);
+                            }
+                        } else if (type == TagType.START_END) {
+                            handler.handleSubtree(candidate);
+                        } else {
+                            subtree = candidate;
+                            inside = candidate;
+                        }
+                    } else if (type == TagType.END) {
+                        final DOMNode sparent = findParent(outside, ((TagNode) node).getTagName());
+                        if (sparent != null) {
+                            if (listener != null) {
+                                depth -= levels(outside, sparent);
+                            }
+                            outside = sparent.getParent();
+                        } else if (listener != null) {
+                            listener.unmatchedEndTag((TagNode) node);
+                        }
+                    }
+                } else if (type == null || type == TagType.START_END) {
+                    inside.appendChild(node);
+                } else if (type == TagType.START) {
+                    inside = inside.appendChild(new DOMNode(inside, node));
+                    if (listener != null) {
+                        opened();
+                    }
+                } else {
+                    final String tagName = ((TagNode) node).getTagName();
+                    final DOMNode sparent = findParent(inside, tagName);
+                    if (sparent != null) {
+                        if (listener != null) {
+                            depth -= levels(inside, sparent);
+                        }
+                        if (sparent == subtree) {
+                            handler.handleSubtree(subtree);
+                            subtree = null;
+                        } else {
+                            inside = sparent.getParent();
+                        }
+                    } else {
+                        final DOMNode outsideParent = findParent(outside, tagName);
+                        if (outsideParent == null) {
+                            // invalid end tag, add as regular node
+                            inside.appendChild(node);
+                            if (listener != null) {
+                                listener.unmatchedEndTag((TagNode) node);
+                            }
+                        } else {
+                            if (listener != null) {
+                                depth -= levels(inside, subtree) + levels(outside, outsideParent);
+                            }
+                            handler.handleSubtree(subtree);
+                            subtree = null;
+                            outside = outsideParent.getParent();
+                        }
+                    }
+                }
+            }
+        } catch (EOFException e) {}
+        if (subtree != null) {
+            handler.handleSubtree(subtree);
+        }
+        finishDocument(start);
+    }
+    
+    /**
+     * Reset the depth tracking for a new document.
+     * 
+     * @return the start time if there is a listener.
+     */
+    private long startDocument() {
+        if (listener == null) {
+            return 0;
+        }
+        depth = 0;
+        maxDepth = 0;
+        return System.nanoTime();
+    }
+    
+    private void finishDocument(long start) {
+        if (listener != null) {
+            listener.documentParsed(maxDepth, System.nanoTime() - start);
+        }
+    }
+    
+    private void opened() {
+        depth++;
+        if (depth > maxDepth) {
+            maxDepth = depth;
+        }
+    }
+    
+    /**
+     * The number of elements from the given node up to and including the
+     * given ancestor.
+     */
+    private static int levels(DOMNode node, DOMNode ancestor) {
+        int levels = 1;
+        for (; node != ancestor; node = node.getParent()) {
+            levels++;
+        }
+        return levels;
+    }
+    
+    /**
+     * The closest of the given node and its ancestors that is a tag with the
+     * given name or <code>null</code> if there is none. Iterative, so deeply
+     * nested or unclosed documents cannot overflow the stack.
+     */
     private static DOMNode findParent(DOMNode tree, String tagType) {
-        if (tree == null || tree.getElement() == null) {
-            return null;
-        } else if (((TagNode) tree.getElement()).getTagName().equals(tagType)) {
-            return tree;
-        } else {
-            return findParent(tree.getParent(), tagType);
+        for (DOMNode node = tree; node != null && node.getElement() != null; node = node.getParent()) {
+            if (((TagNode) node.getElement()).getTagName().equals(tagType)) {
+                return node;
+            }
         }
+        return null;
+    }
+    
+    /**
+     * Receives the subtrees found by
+     * {@link DOMParser#parse(DOMMatcher, SubtreeHandler)}.
+     */
+    public static interface SubtreeHandler {
+        /**
+         * Called with the root of every matching subtree, in document order.
+         * The subtree is not used by the parser afterwards.
+         */
+        void handleSubtree(DOMNode subtree) throws IOException;
     }
 }
@@ -0,0 +1,495 @@
+package at.yawk.yxml.dom;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import at.yawk.yxml.Node;
+import at.yawk.yxml.TagNode;
+import at.yawk.yxml.TagNode.Attribute;
+import at.yawk.yxml.XmlUtil;
+import at.yawk.yxml.dom.DOMNode.DOMMatcher;
+
+/**
+ * A compiled CSS selector, for example <code>div.post &gt; a[href^=/story]</code>.
+ * Selectors are compiled once by {@link #compile(String)} and can then be used
+ * as a {@link DOMMatcher} or with {@link #select(DOMNode)} on any number of
+ * trees.
+ * <p>
+ * Supported are type selectors, <code>*</code>, <code>#id</code>,
+ * <code>.class</code>, attribute selectors (<code>[attr]</code> and the
+ * operators <code>=</code>, <code>~=</code>, <code>|=</code>, <code>^=</code>,
+ * <code>$=</code> and <code>*=</code>), <code>:first-child</code>,
+ * <code>:last-child</code>, the descendant, <code>&gt;</code>,
+ * <code>+</code> and <code>~</code> combinators and selector groups separated
+ * by <code>,</code>. As in HTML, tag and attribute names are compared
+ * case-insensitively while attribute values are compared exactly. Attribute
+ * values may be quoted or, unlike CSS, any unquoted text up to the closing
+ * <code>]</code>.
+ * <p>
+ * Selectors are evaluated from right to left: a node is first checked against
+ * the rightmost compound selector, and its ancestors and siblings are only
+ * looked at if that matches.
+ */
+public class DOMSelector implements DOMMatcher {
+    private static final int MAX_CACHE_SIZE = 1024;
+    private static final ConcurrentMap<String, DOMSelector> cache = new ConcurrentHashMap<String, DOMSelector>();
+    
+    private final String selector;
+    private final Complex[] alternatives;
+    
+    private DOMSelector(String selector, Complex[] alternatives) {
+        this.selector = selector;
+        this.alternatives = alternatives;
+    }
+    
+    /**
+     * Compile the given selector. Compiled selectors are cached, so calling
+     * this repeatedly with the same selector is cheap.
+     * 
+     * @throws IllegalArgumentException
+     *             if the selector is invalid or unsupported.
+     */
+    public static DOMSelector compile(String selector) {
+        DOMSelector compiled = cache.get(selector);
+        if (compiled == null) {
+            compiled = new SelectorParser(selector).parse();
+            if (cache.size() >= MAX_CACHE_SIZE) {
+                cache.clear();
+            }
+            cache.put(selector, compiled);
+        }
+        return compiled;
+    }
+    
+    /**
+     * Returns <code>true</code> if the given node is an element that matches
+     * this selector.
+     */
+    @Override
+    public boolean matches(DOMNode node) {
+        if (!isElement(node)) {
+            return false;
+        }
+        for (Complex alternative : alternatives) {
+            if (alternative.matches(0, node)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * All descendants of the given node that match this selector, in document
+     * order. The given node itself is not included.
+     */
+    public List<DOMNode> select(DOMNode root) {
+        final List<DOMNode> matches = new ArrayList<DOMNode>();
+        final Iterator<DOMNode> iterator = root.iterateChildrenForMatch(this, true);
+        while (iterator.hasNext()) {
+            final DOMNode node = iterator.next();
+            if (node != root) {
+                matches.add(node);
+            }
+        }
+        return matches;
+    }
+    
+    /**
+     * The first descendant of the given node that matches this selector or
+     * <code>null</code> if there is none.
+     */
+    public DOMNode selectFirst(DOMNode root) {
+        final Iterator<DOMNode> iterator = root.iterateChildrenForMatch(this, true);
+        while (iterator.hasNext()) {
+            final DOMNode node = iterator.next();
+            if (node != root) {
+                return node;
+            }
+        }
+        return null;
+    }
+    
+    @Override
+    public String toString() {
+        return selector;
+    }
+    
+    private static boolean isElement(DOMNode node) {
+        final Node element = node.getElement();
+        return element instanceof TagNode && ((TagNode) element).getType().isStart();
+    }
+    
+    private static boolean isFirstElementChild(DOMNode node) {
+        for (DOMNode sibling = node.getPreviousSibling(); sibling != null; sibling = sibling.getPreviousSibling()) {
+            if (isElement(sibling)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static boolean isLastElementChild(DOMNode node) {
+        for (DOMNode sibling = node.getNextSibling(); sibling != null; sibling = sibling.getNextSibling()) {
+            if (isElement(sibling)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * The closest element sibling before the given node or <code>null</code>
+     * if there is none.
+     */
+    private static DOMNode previousElementSibling(DOMNode node) {
+        DOMNode sibling = node.getPreviousSibling();
+        while (sibling != null && !isElement(sibling)) {
+            sibling = sibling.getPreviousSibling();
+        }
+        return sibling;
+    }
+    
+    /**
+     * Compound selectors joined by combinators, stored from right to left.
+     */
+    private static final class Complex {
+        private final Compound[] compounds;
+        /**
+         * <code>combinators[i]</code> is the combinator between
+         * <code>compounds[i]</code> and <code>compounds[i + 1]</code>.
+         */
+        private final char[] combinators;
+        
+        Complex(Compound[] compounds, char[] combinators) {
+            this.compounds = compounds;
+            this.combinators = combinators;
+        }
+        
+        boolean matches(int i, DOMNode node) {
+            if (!compounds[i].matches(node)) {
+                return false;
+            }
+            if (i == compounds.length - 1) {
+                return true;
+            }
+            switch (combinators[i]) {
+            case ' ':
+                for (DOMNode ancestor = node.getParent(); ancestor != null && isElement(ancestor); ancestor = ancestor.getParent()) {
+                    if (matches(i + 1, ancestor)) {
+                        return true;
+                    }
+                }
+                return false;
+            case '>':
+                final DOMNode parent = node.getParent();
+                return parent != null && isElement(parent) && matches(i + 1, parent);
+            case '+':
+                final DOMNode previous = previousElementSibling(node);
+                return previous != null && matches(i + 1, previous);
+            case '~':
+                for (DOMNode sibling = previousElementSibling(node); sibling != null; sibling = previousElementSibling(sibling)) {
+                    if (matches(i + 1, sibling)) {
+                        return true;
+                    }
+                }
+                return false;
+            default:
+                throw new IllegalStateException();
+            }
+        }
+    }
+    
+    /**
+     * A tag name and any number of conditions on the same element.
+     */
+    private static final class Compound {
+        /**
+         * <code>null</code> for any tag.
+         */
+        private final String tagName;
+        private final Condition[] conditions;
+        
+        Compound(String tagName, Condition[] conditions) {
+            this.tagName = tagName;
+            this.conditions = conditions;
+        }
+        
+        boolean matches(DOMNode node) {
+            final TagNode tag = (TagNode) node.getElement();
+            if (tagName != null && !tag.getTagName().equalsIgnoreCase(tagName)) {
+                return false;
+            }
+            for (Condition condition : conditions) {
+                if (!condition.matches(node, tag)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+    
+    private static final class Condition {
+        private final Operator operator;
+        private final String key;
+        private final String value;
+        
+        Condition(Operator operator, String key, String value) {
+            this.operator = operator;
+            this.key = key;
+            this.value = value;
+        }
+        
+        boolean matches(DOMNode node, TagNode tag) {
+            switch (operator) {
+            case FIRST_CHILD:
+                return isFirstElementChild(node);
+            case LAST_CHILD:
+                return isLastElementChild(node);
+            default:
+                for (Attribute attribute : tag.getAttributes()) {
+                    if (attribute.getKey().equalsIgnoreCase(key)) {
+                        return operator.test(attribute.getValue(), value);
+                    }
+                }
+                return false;
+            }
+        }
+    }
+    
+    private static enum Operator {
+        EXISTS,
+        EQUALS,
+        INCLUDES,
+        DASH_MATCH,
+        PREFIX,
+        SUFFIX,
+        SUBSTRING,
+        FIRST_CHILD,
+        LAST_CHILD;
+        
+        boolean test(String actual, String expected) {
+            if (this == EXISTS) {
+                return true;
+            }
+            if (actual == null) {
+                return false;
+            }
+            switch (this) {
+            case EQUALS:
+                return actual.equals(expected);
+            case INCLUDES:
+                return containsWord(actual, expected);
+            case DASH_MATCH:
+                return actual.equals(expected) || actual.startsWith(expected + '-');
+            case PREFIX:
+                return !expected.isEmpty() && actual.startsWith(expected);
+            case SUFFIX:
+                return !expected.isEmpty() && actual.endsWith(expected);
+            case SUBSTRING:
+                return !expected.isEmpty() && actual.contains(expected);
+            default:
+                throw new IllegalStateException();
+            }
+        }
+        
+        private static boolean containsWord(String words, String word) {
+            if (word.isEmpty()) {
+                return false;
+            }
+            int i = words.indexOf(word);
+            while (i != -1) {
+                final int end = i + word.length();
+                if ((i == 0 || XmlUtil.isWhitespace(words.charAt(i - 1))) && (end == words.length() || XmlUtil.isWhitespace(words.charAt(end)))) {
+                    return true;
+                }
+                i = words.indexOf(word, i + 1);
+            }
+            return false;
+        }
+    }
+    
+    private static final class SelectorParser {
+        private final String selector;
+        private int i = 0;
+        
+        SelectorParser(String selector) {
+            this.selector = selector;
+        }
+        
+        DOMSelector parse() {
+            final List<Complex> alternatives = new ArrayList<Complex>();
+            do {
+                alternatives.add(parseComplex());
+            } while (accept(','));
+            if (i < selector.length()) {
+                throw error("Unexpected character");
+            }
+            return new DOMSelector(selector, alternatives.toArray(new Complex[alternatives.size()]));
+        }
+        
+        private Complex parseComplex() {
+            final List<Compound> compounds = new ArrayList<Compound>();
+            final StringBuilder combinators = new StringBuilder();
+            skipWhitespace();
+            compounds.add(parseCompound());
+            while (true) {
+                final boolean whitespace = skipWhitespace();
+                if (i == selector.length() || peek() == ',') {
+                    break;
+                }
+                final char c = peek();
+                if (c == '>' || c == '+' || c == '~') {
+                    i++;
+                    skipWhitespace();
+                    combinators.append(c);
+                } else if (whitespace) {
+                    combinators.append(' ');
+                } else {
+                    throw error("Unexpected character");
+                }
+                compounds.add(parseCompound());
+            }
+            // evaluation starts at the rightmost compound
+            final Compound[] compoundArray = new Compound[compounds.size()];
+            final char[] combinatorArray = new char[combinators.length()];
+            for (int j = 0; j < compoundArray.length; j++) {
+                compoundArray[j] = compounds.get(compounds.size() - 1 - j);
+            }
+            for (int j = 0; j < combinatorArray.length; j++) {
+                combinatorArray[j] = combinators.charAt(combinators.length() - 1 - j);
+            }
+            return new Complex(compoundArray, combinatorArray);
+        }
+        
+        private Compound parseCompound() {
+            String tagName = null;
+            final List<Condition> conditions = new ArrayList<Condition>();
+            if (accept('*')) {
+                // any tag
+            } else if (i < selector.length() && isIdentifierCharacter(peek())) {
+                tagName = parseIdentifier();
+            } else if (i == selector.length() || "#.[:".indexOf(peek()) == -1) {
+                throw error("Expected selector");
+            }
+            while (i < selector.length()) {
+                if (accept('#')) {
+                    conditions.add(new Condition(Operator.EQUALS, "id", parseIdentifier()));
+                } else if (accept('.')) {
+                    conditions.add(new Condition(Operator.INCLUDES, "class", parseIdentifier()));
+                } else if (accept('[')) {
+                    conditions.add(parseAttribute());
+                } else if (accept(':')) {
+                    final String pseudo = parseIdentifier();
+                    if (pseudo.equals("first-child")) {
+                        conditions.add(new Condition(Operator.FIRST_CHILD, null, null));
+                    } else if (pseudo.equals("last-child")) {
+                        conditions.add(new Condition(Operator.LAST_CHILD, null, null));
+                    } else {
+                        throw error("Unsupported pseudo-class :" + pseudo);
+                    }
+                } else {
+                    break;
+                }
+            }
+            return new Compound(tagName, conditions.toArray(new Condition[conditions.size()]));
+        }
+        
+        private Condition parseAttribute() {
+            skipWhitespace();
+            final String key = parseIdentifier();
+            skipWhitespace();
+            if (accept(']')) {
+                return new Condition(Operator.EXISTS, key, null);
+            }
+            final Operator operator;
+            if (accept('=')) {
+                operator = Operator.EQUALS;
+            } else {
+                final char c = i < selector.length() ? peek() : 0;
+                i++;
+                if (c == '~') {
+                    operator = Operator.INCLUDES;
+                } else if (c == '|') {
+                    operator = Operator.DASH_MATCH;
+                } else if (c == '^') {
+                    operator = Operator.PREFIX;
+                } else if (c == '$') {
+                    operator = Operator.SUFFIX;
+                } else if (c == '*') {
+                    operator = Operator.SUBSTRING;
+                } else {
+                    i--;
+                    throw error("Expected attribute operator");
+                }
+                if (!accept('=')) {
+                    throw error("Expected '='");
+                }
+            }
+            skipWhitespace();
+            final String value;
+            if (i < selector.length() && (peek() == '"' || peek() == '\'')) {
+                final char quote = selector.charAt(i++);
+                final int end = selector.indexOf(quote, i);
+                if (end == -1) {
+                    throw error("Unterminated string");
+                }
+                value = selector.substring(i, end);
+                i = end + 1;
+                skipWhitespace();
+                if (!accept(']')) {
+                    throw error("Expected ']'");
+                }
+            } else {
+                final int end = selector.indexOf(']', i);
+                if (end == -1) {
+                    throw error("Expected ']'");
+                }
+                value = selector.substring(i, end).trim();
+                i = end + 1;
+            }
+            return new Condition(operator, key, value);
+        }
+        
+        private String parseIdentifier() {
+            final int start = i;
+            while (i < selector.length() && isIdentifierCharacter(peek())) {
+                i++;
+            }
+            if (i == start) {
+                throw error("Expected name");
+            }
+            return selector.substring(start, i);
+        }
+        
+        private static boolean isIdentifierCharacter(char c) {
+            return c == '-' || c == '_' || c >= 0x80 || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+        }
+        
+        private boolean skipWhitespace() {
+            final int start = i;
+            while (i < selector.length() && XmlUtil.isWhitespace(peek())) {
+                i++;
+            }
+            return i > start;
+        }
+        
+        private char peek() {
+            return selector.charAt(i);
+        }
+        
+        private boolean accept(char c) {
+            if (i < selector.length() && peek() == c) {
+                i++;
+                return true;
+            }
+            return false;
+        }
+        
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at index " + i + " of selector '" + selector + "'");
+        }
+    }
+}
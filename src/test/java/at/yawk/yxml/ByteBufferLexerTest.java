@@ -0,0 +1,130 @@
+package at.yawk.yxml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ByteBufferLexerTest {
+    private static final Charset UTF_8 = StandardCharsets.UTF_8;
+    private static final int DOCUMENTS = 500;
+    
+    @Test
+    public void sameNodes() throws IOException {
+        final Random random = new Random(5);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            final String document = LexerTests.randomDocument(random);
+            final boolean cleanup = i % 2 == 0;
+            final byte[] bytes = document.getBytes(UTF_8);
+            final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+            direct.put(bytes);
+            direct.flip();
+            final List<String> expected = LexerTests.expected(document, cleanup);
+            assertEquals(document, expected, LexerTests.lex(configure(new ByteBufferLexer(ByteBuffer.wrap(bytes)), cleanup)));
+            assertEquals(document, expected, LexerTests.lex(configure(new ByteBufferLexer(direct), cleanup)));
+        }
+    }
+    
+    @Test
+    public void fileWindows() throws IOException {
+        final Random random = new Random(6);
+        final Path file = Files.createTempFile("yxml", ".xml");
+        try {
+            for (int i = 0; i < DOCUMENTS / 5; i++) {
+                final String document = LexerTests.randomDocument(random);
+                final boolean cleanup = i % 2 == 0;
+                Files.write(file, document.getBytes(UTF_8));
+                final FileChannel channel = FileChannel.open(file);
+                try {
+                    // windows smaller than most tokens
+                    final Lexer lexer = new ByteBufferLexer(channel, UTF_8, 1 + i % 17);
+                    lexer.setCleanupWhitespace(cleanup);
+                    assertEquals(document, LexerTests.expected(document, cleanup), LexerTests.lex(lexer));
+                } finally {
+                    channel.close();
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+    
+    @Test
+    public void charsets() throws IOException {
+        final String document = "<p title='\u00e9'>\u00e9</p>";
+        for (String name : new String[] { "UTF-8", "ISO-8859-1", "ISO-8859-15" }) {
+            final Charset charset = Charset.forName(name);
+            final Lexer lexer = new ByteBufferLexer(ByteBuffer.wrap(document.getBytes(charset)), charset);
+            assertEquals(name, LexerTests.expected(document, false), LexerTests.lex(lexer));
+        }
+        new ByteBufferLexer(ByteBuffer.allocate(0), StandardCharsets.US_ASCII);
+        // stateful and multi-byte charsets whose bytes may look like '<'
+        for (String name : new String[] { "UTF-16", "UTF-16LE", "ISO-2022-JP", "Shift_JIS", "GBK" }) {
+            try {
+                new ByteBufferLexer(ByteBuffer.allocate(0), Charset.forName(name));
+                fail(name);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+    
+    @Test
+    public void skipElement() throws IOException {
+        final String document = "<\u00e9><a><\u00e9 x=1>y</\u00e9><b>\u20ac</b></\u00e9>"
+                + "<a><a/><a>\u00e9</a></a><c>";
+        final Lexer lexer = configure(new ByteBufferLexer(ByteBuffer.wrap(document.getBytes(UTF_8))), true);
+        lexer.next();
+        lexer.skipElement();
+        assertEquals("TagNode[/\u00e9]END|\u00e9|[]", LexerTests.describe(lexer.currentNode));
+        lexer.next();
+        lexer.skipElement();
+        assertEquals("TagNode[/a]END|a|[]", LexerTests.describe(lexer.currentNode));
+        assertEquals("TagNode[c]START|c|[]", LexerTests.describe(lexer.skipTo("c")));
+    }
+    
+    @Test
+    public void cursor() throws IOException {
+        final Random random = new Random(9);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            final String document = LexerTests.randomDocument(random);
+            final boolean cleanup = i % 2 == 0;
+            final Lexer bytes = configure(new ByteBufferLexer(ByteBuffer.wrap(document.getBytes(UTF_8))), cleanup);
+            final Lexer chars = new Lexer(new StringReader(document), cleanup);
+            // only every other text token is decoded
+            assertEquals(document, events(new LexerCursor(chars), i), events(new LexerCursor(bytes), i));
+        }
+    }
+    
+    private static Lexer configure(Lexer lexer, boolean cleanup) {
+        lexer.setCleanupWhitespace(cleanup);
+        return lexer;
+    }
+    
+    private static List<String> events(LexerCursor cursor, int seed) throws IOException {
+        final List<String> events = new ArrayList<String>();
+        LexerCursor.Event event;
+        int n = seed;
+        while ((event = cursor.advance()) != LexerCursor.Event.END_DOCUMENT) {
+            if (event.isTag()) {
+                events.add(event + "|" + cursor.text() + "|" + cursor.tagName());
+            } else if (n++ % 2 == 0) {
+                events.add(event + "|" + cursor.text());
+            } else {
+                events.add(event.toString());
+            }
+        }
+        return events;
+    }
+}
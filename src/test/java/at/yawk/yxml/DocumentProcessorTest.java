@@ -0,0 +1,151 @@
+package at.yawk.yxml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import at.yawk.yxml.DocumentProcessor.DocumentSource;
+
+import org.junit.Test;
+
+public class DocumentProcessorTest {
+    private static final Executor NEW_THREAD = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            new Thread(command).start();
+        }
+    };
+    
+    @Test
+    public void results() throws Exception {
+        final Random random = new Random(17);
+        final List<String> documents = new ArrayList<String>();
+        final List<DocumentSource> sources = new ArrayList<DocumentSource>();
+        for (int i = 0; i < 300; i++) {
+            final String document = LexerTests.randomDocument(random);
+            documents.add(document);
+            sources.add(() -> new StringReader(document));
+        }
+        try (DocumentProcessor processor = new DocumentProcessor(4)) {
+            processor.getLexerFactory().setCleanupWhitespace(true);
+            final List<CompletableFuture<List<String>>> futures = processor.submitAll(sources, LexerTests::lex);
+            assertEquals(documents.size(), futures.size());
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals(LexerTests.expected(documents.get(i), true), futures.get(i).get());
+            }
+        }
+    }
+    
+    /**
+     * Lexers are returned to the factory once a document is done.
+     */
+    @Test
+    public void reuse() throws Exception {
+        try (DocumentProcessor processor = new DocumentProcessor(1)) {
+            final Lexer first = processor.submit(() -> new StringReader("<a>"), lexer -> lexer).get();
+            final Lexer second = processor.submit(() -> new StringReader("<b>"), lexer -> lexer).get();
+            assertSame(first, second);
+        }
+    }
+    
+    @Test
+    public void errors() throws Exception {
+        final AtomicBoolean closed = new AtomicBoolean();
+        try (DocumentProcessor processor = new DocumentProcessor(NEW_THREAD, 2)) {
+            final CompletableFuture<Object> open = processor.submit(() -> {
+                throw new IOException("open");
+            }, lexer -> null);
+            final CompletableFuture<Object> process = processor.submit(() -> new StringReader("<a>") {
+                @Override
+                public void close() {
+                    closed.set(true);
+                }
+            }, lexer -> {
+                throw new IOException("process");
+            });
+            assertEquals("open", cause(open).getMessage());
+            assertEquals("process", cause(process).getMessage());
+            assertTrue(closed.get());
+        }
+    }
+    
+    /**
+     * Submitting blocks while the maximum number of documents is processed.
+     */
+    @Test
+    public void backpressure() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final DocumentProcessor.LexerTask<Object> blocking = lexer -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return null;
+        };
+        try (DocumentProcessor processor = new DocumentProcessor(NEW_THREAD, 2)) {
+            final CompletableFuture<Object> a = processor.submit(() -> new StringReader(""), blocking);
+            final CompletableFuture<Object> b = processor.submit(() -> new StringReader(""), blocking);
+            final CompletableFuture<CompletableFuture<Object>> c = new CompletableFuture<CompletableFuture<Object>>();
+            final Thread submitter = new Thread(() -> {
+                try {
+                    c.complete(processor.submit(() -> new StringReader(""), lexer -> null));
+                } catch (InterruptedException e) {
+                    c.completeExceptionally(e);
+                }
+            });
+            submitter.start();
+            Thread.sleep(200);
+            assertFalse(c.isDone());
+            release.countDown();
+            c.get().get();
+            a.get();
+            b.get();
+        }
+    }
+    
+    /**
+     * A rejected document must not keep its permit.
+     */
+    @Test
+    public void closed() throws Exception {
+        final DocumentProcessor processor = new DocumentProcessor(1);
+        processor.close();
+        for (int i = 0; i < 2; i++) {
+            try {
+                processor.submit(() -> new StringReader(""), lexer -> null);
+                fail();
+            } catch (RejectedExecutionException expected) {
+            }
+        }
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidConcurrency() {
+        new DocumentProcessor(NEW_THREAD, 0);
+    }
+    
+    private static Throwable cause(CompletableFuture<?> future) throws InterruptedException {
+        try {
+            future.get();
+            fail();
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+}
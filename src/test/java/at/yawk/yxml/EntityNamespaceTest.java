@@ -0,0 +1,68 @@
+package at.yawk.yxml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+public class EntityNamespaceTest {
+    @Test
+    public void html5() {
+        final EntityNamespace html = EntityNamespace.HTML_NAMESPACE;
+        assertEquals("\u00A0", html.getEntity("nbsp"));
+        assertEquals("\u00C1", html.getEntity("Aacute"));
+        assertEquals("&", html.getEntity("amp"));
+        assertEquals("\u2AA2\u0338", html.getEntity("NotNestedGreaterGreater"));
+        assertEquals("\uD835\uDD04", html.getEntity("Afr"));
+        assertNull(html.getEntity("nbs"));
+        assertNull(html.getEntity("nbsp;"));
+        assertEquals("\u00A9 fj \u00A0&x;", XmlUtil.unescapeXml("&copy; &fjlig; &nbsp;&x;", html));
+    }
+    
+    @Test
+    public void table() {
+        final String[] names = EntityTable.HTML5.getNames();
+        final String[] values = EntityTable.HTML5.getValues();
+        assertTrue(names.length > 2000);
+        assertEquals(names.length, values.length);
+        for (int i = 1; i < names.length; i++) {
+            assertTrue(names[i], names[i - 1].compareTo(names[i]) < 0);
+        }
+        for (int i = 0; i < names.length; i++) {
+            assertEquals(names[i], values[i], EntityTable.HTML5.get(names[i]));
+        }
+    }
+    
+    /**
+     * Copies that do not redefine any entity share the trie of the table,
+     * others get their own with their definitions taking precedence.
+     */
+    @Test
+    public void copies() {
+        final EntityNamespace copy = new EntityNamespace(EntityNamespace.HTML_NAMESPACE);
+        assertSame(EntityTable.HTML5.getTrie(), copy.getTrie());
+        assertSame(EntityTable.HTML5.getTrie(), EntityNamespace.HTML_NAMESPACE.clone().getTrie());
+        
+        copy.putEntity("copy", "(c)");
+        copy.putEntity("yxml", "y");
+        assertNotSame(EntityTable.HTML5.getTrie(), copy.getTrie());
+        assertEquals("(c)y\u00A0<", XmlUtil.unescapeXml("&copy;&yxml;&nbsp;&lt;", copy));
+        assertEquals("(c)", copy.getEntity("copy"));
+        assertEquals("\u00A9", EntityNamespace.HTML_NAMESPACE.getEntity("copy"));
+        assertNull(EntityNamespace.HTML_NAMESPACE.getEntity("yxml"));
+    }
+    
+    @Test
+    public void immutableDefault() {
+        try {
+            EntityNamespace.DEFAULT_XML_NAMESPACE.putEntity("nbsp", " ");
+            fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+        assertEquals("&nbsp;", XmlUtil.unescapeXml("&nbsp;", EntityNamespace.DEFAULT_XML_NAMESPACE));
+    }
+}
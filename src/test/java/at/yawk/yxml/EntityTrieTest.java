@@ -0,0 +1,79 @@
+package at.yawk.yxml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class EntityTrieTest {
+    @Test
+    public void trie() {
+        final EntityTrie trie = new EntityTrie(new String[] { "a", "ab", "abd", "b" }, new String[] { "1", "2", "3", "4" });
+        assertEquals("1", trie.get("a", 0, 1));
+        assertEquals("2", trie.get("xaby", 1, 3));
+        assertEquals("3", trie.get("abd", 0, 3));
+        assertEquals("4", trie.get("b", 0, 1));
+        assertNull(trie.get("abc", 0, 3));
+        assertNull(trie.get("abdd", 0, 4));
+        assertNull(trie.get("c", 0, 1));
+        assertNull(trie.get("", 0, 0));
+        assertNull(new EntityTrie(new String[0], new String[0]).get("a", 0, 1));
+    }
+    
+    @Test
+    public void unescape() {
+        final EntityNamespace xml = EntityNamespace.DEFAULT_XML_NAMESPACE;
+        final String plain = "no references";
+        assertSame(plain, XmlUtil.unescapeXml(plain, xml));
+        assertEquals("a & b", XmlUtil.unescapeXml("a &amp; b", xml));
+        assertEquals("<'\">", XmlUtil.unescapeXml("&lt;&apos;&quot;&gt;", xml));
+        assertEquals("ABC", XmlUtil.unescapeXml("&#65;&#x42;&#X43;", xml));
+        assertEquals("\uD83D\uDE00", XmlUtil.unescapeXml("&#x1F600;", xml));
+        // a reference at the end does not need the semicolon
+        assertEquals("x&", XmlUtil.unescapeXml("x&amp", xml));
+        assertEquals("&&", XmlUtil.unescapeXml("&&amp;", xml));
+    }
+    
+    /**
+     * References that cannot be resolved are kept as they are.
+     */
+    @Test
+    public void unresolved() {
+        final EntityNamespace xml = EntityNamespace.DEFAULT_XML_NAMESPACE;
+        assertEquals("&unknown;", XmlUtil.unescapeXml("&unknown;", xml));
+        assertEquals("& x", XmlUtil.unescapeXml("& x", xml));
+        assertEquals("&;", XmlUtil.unescapeXml("&;", xml));
+        assertEquals("&#;&#x;&#xZZ;", XmlUtil.unescapeXml("&#;&#x;&#xZZ;", xml));
+        assertEquals("&#1114112;", XmlUtil.unescapeXml("&#1114112;", xml));
+        assertEquals("&am &", XmlUtil.unescapeXml("&am &amp;", xml));
+    }
+    
+    @Test
+    public void entityValue() {
+        assertEquals(0x41, XmlUtil.getEntityValue("#x41"));
+        assertEquals(65, XmlUtil.getEntityValue("#65"));
+        assertEquals(-2, XmlUtil.getEntityValue("#"));
+        assertEquals(-2, XmlUtil.getEntityValue("#zz"));
+        assertEquals(-1, XmlUtil.getEntityValue("amp"));
+        assertEquals(-1, XmlUtil.getEntityValue(""));
+        
+        assertEquals("A", XmlUtil.getEntityValue("#65", EntityNamespace.DEFAULT_XML_NAMESPACE));
+        assertEquals("&", XmlUtil.getEntityValue("amp", EntityNamespace.DEFAULT_XML_NAMESPACE));
+        assertNull(XmlUtil.getEntityValue("#q", EntityNamespace.DEFAULT_XML_NAMESPACE));
+        assertNull(XmlUtil.getEntityValue("nbsp", EntityNamespace.DEFAULT_XML_NAMESPACE));
+    }
+    
+    /**
+     * Adding an entity must discard the compiled trie.
+     */
+    @Test
+    public void putEntity() {
+        final EntityNamespace namespace = new EntityNamespace();
+        assertEquals("&foo;&amp", XmlUtil.unescapeXml("&foo;&amp;amp", namespace));
+        namespace.putEntity("foo", "bar");
+        namespace.putEntity("amp", "and");
+        assertEquals("barandamp", XmlUtil.unescapeXml("&foo;&amp;amp", namespace));
+        assertEquals("&", XmlUtil.unescapeXml("&amp;", EntityNamespace.DEFAULT_XML_NAMESPACE));
+    }
+}
@@ -0,0 +1,128 @@
+package at.yawk.yxml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import at.yawk.yxml.LexerCursor.Event;
+import at.yawk.yxml.TagNode.Attribute;
+
+import org.junit.Test;
+
+public class LexerCursorTest {
+    /**
+     * The cursor must report the same tokens as {@link Lexer#next()}.
+     */
+    @Test
+    public void sameTokens() throws IOException {
+        final Random random = new Random(3);
+        for (int i = 0; i < 500; i++) {
+            final String document = LexerTests.randomDocument(random);
+            final boolean cleanup = i % 2 == 0;
+            final List<String> expected = new ArrayList<String>();
+            for (Node node : LexerTests.nodes(new Lexer(new StringReader(document), cleanup))) {
+                expected.add(describe(node));
+            }
+            final LexerCursor cursor = new LexerCursor(new Lexer(LexerTests.chunkedReader(document, random, 20), cleanup));
+            final List<String> actual = new ArrayList<String>();
+            while (cursor.advance() != Event.END_DOCUMENT) {
+                actual.add(describe(cursor));
+            }
+            assertEquals(document, expected, actual);
+        }
+    }
+    
+    @Test
+    public void accessors() throws IOException {
+        final Lexer lexer = new Lexer(new StringReader("<a x=1 y x=2 z='q'>t</a>"), true);
+        final LexerCursor cursor = new LexerCursor(lexer);
+        assertNull(cursor.event());
+        assertEquals(Event.START_TAG, cursor.advance());
+        assertEquals(Event.START_TAG, cursor.event());
+        assertEquals(TagNode.TagType.START, cursor.tagType());
+        assertEquals("a", cursor.tagName());
+        assertTrue(cursor.tagNameEquals("a"));
+        assertFalse(cursor.tagNameEquals("ab"));
+        assertEquals(4, cursor.attributeCount());
+        assertEquals("y", cursor.attributeKey(1));
+        assertNull(cursor.attributeValue(1));
+        assertEquals("q", cursor.attributeValue(3));
+        // the last of duplicate attributes, as in TagNode
+        assertEquals("2", cursor.attributeValue("x"));
+        assertNull(cursor.attributeValue("y"));
+        assertNull(cursor.attributeValue("w"));
+        try {
+            cursor.attributeKey(4);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+        // names come from the symbol table
+        assertSame(cursor.tagName(), cursor.tagName());
+        
+        assertEquals(Event.TEXT, cursor.advance());
+        assertEquals("t", cursor.text());
+        try {
+            cursor.tagName();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        
+        // the cursor and next() may be mixed
+        assertEquals("TagNode[/a]END|a|[]", LexerTests.describe(lexer.next()));
+        assertEquals(Event.END_DOCUMENT, cursor.advance());
+        try {
+            cursor.text();
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+    
+    @Test
+    public void specialTags() throws IOException {
+        final LexerCursor cursor = new LexerCursor(new Lexer(new StringReader("<?xml version='1.0'?><><!x><b/>"), true));
+        assertEquals(Event.XML_HEADER, cursor.advance());
+        assertEquals("xml version='1.0'", cursor.text());
+        assertEquals("xml", cursor.tagName());
+        assertEquals("1.0", cursor.attributeValue("version"));
+        assertEquals(TagNode.TagType.START_END, cursor.tagType());
+        assertEquals(Event.EMPTY_TAG, cursor.advance());
+        assertEquals(Event.UNKNOWN_TAG, cursor.advance());
+        assertEquals(Event.START_END_TAG, cursor.advance());
+        // like TagNode, the name only ends at whitespace
+        assertEquals("b/", cursor.tagName());
+    }
+    
+    private static String describe(Node node) {
+        final StringBuilder b = new StringBuilder();
+        b.append(node.getRawContent());
+        if (node instanceof TagNode && !(node instanceof SpecialTagNode)) {
+            final TagNode tag = (TagNode) node;
+            b.append('|').append(tag.getType()).append('|').append(tag.getTagName());
+            for (Attribute attribute : tag.getAttributes()) {
+                b.append('|').append(attribute.getKey()).append('=').append(attribute.getValue());
+            }
+        }
+        return b.toString();
+    }
+    
+    private static String describe(LexerCursor cursor) {
+        final StringBuilder b = new StringBuilder();
+        b.append(cursor.text());
+        if (cursor.event().isTag() && cursor.event() != Event.XML_HEADER) {
+            b.append('|').append(cursor.tagType()).append('|').append(cursor.tagName());
+            for (int i = 0; i < cursor.attributeCount(); i++) {
+                b.append('|').append(cursor.attributeKey(i)).append('=').append(cursor.attributeValue(i));
+            }
+        }
+        return b.toString();
+    }
+}
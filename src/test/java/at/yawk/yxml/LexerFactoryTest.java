@@ -0,0 +1,95 @@
+package at.yawk.yxml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LexerFactoryTest {
+    /**
+     * A reset lexer must behave like a new one, wherever the last document
+     * was left.
+     */
+    @Test
+    public void reset() throws IOException {
+        final Random random = new Random(18);
+        final Lexer lexer = new Lexer(new StringReader(""), true);
+        for (int i = 0; i < 300; i++) {
+            final String document = LexerTests.randomDocument(random);
+            lexer.reset(new StringReader(document));
+            assertEquals(document, LexerTests.expected(document, true), LexerTests.lex(lexer));
+            // stop inside a tag
+            lexer.reset(new StringReader("<a b='"));
+            lexer.next();
+        }
+    }
+    
+    @Test
+    public void zeroCopyNodesSurviveReset() throws IOException {
+        final Lexer lexer = new Lexer(new StringReader("first<a>"));
+        lexer.setZeroCopy(true);
+        final Node text = lexer.next();
+        lexer.reset(new StringReader("second<b>"));
+        assertEquals("second", lexer.next().getRawContent());
+        assertEquals("first", text.getRawContent());
+    }
+    
+    @Test
+    public void pooling() throws IOException {
+        final LexerFactory factory = new LexerFactory(1);
+        factory.setCleanupWhitespace(true);
+        final SymbolTable table = new SymbolTable();
+        factory.setSymbolTable(table);
+        final Lexer a = factory.create(new StringReader("<a>"));
+        final Lexer b = factory.create(new StringReader("<b>"));
+        assertNotSame(a, b);
+        assertTrue(a.isCleanupWhitespace());
+        assertSame(table, a.getSymbolTable());
+        assertEquals(Arrays.asList("TagNode[a]START|a|[]"), LexerTests.lex(a));
+        factory.release(a);
+        // the pool is full
+        factory.release(b);
+        
+        factory.setCleanupWhitespace(false);
+        factory.setSymbolTable(null);
+        final Lexer c = factory.create(new StringReader("x<c>"));
+        assertSame(a, c);
+        assertNull(c.getSymbolTable());
+        assertEquals(Arrays.asList("TextNode[x]", "TagNode[c]START|c|[]"), LexerTests.lex(c));
+        assertNotSame(b, factory.create(new StringReader("")));
+    }
+    
+    @Test
+    public void subclassesAreNotPooled() {
+        final LexerFactory factory = new LexerFactory();
+        factory.release(new Lexer(new StringReader("")) {
+        });
+        assertSame(Lexer.class, factory.create(new StringReader("")).getClass());
+    }
+    
+    /**
+     * Buffers grown for a large document are not kept in the pool.
+     */
+    @Test
+    public void largeBuffer() throws IOException {
+        final LexerFactory factory = new LexerFactory();
+        final char[] text = new char[3 * 1024 * 1024];
+        Arrays.fill(text, 't');
+        final Reader reader = new StringReader(new String(text));
+        final Lexer lexer = factory.create(reader);
+        assertEquals(text.length, lexer.next().getRawContent().length());
+        assertTrue(lexer.buffer.length >= text.length);
+        factory.release(lexer);
+        assertSame(lexer, factory.create(new StringReader("")));
+        assertTrue(lexer.buffer.length < text.length);
+    }
+}
@@ -0,0 +1,92 @@
+package at.yawk.yxml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import at.yawk.yxml.dom.DOMParser;
+
+import org.junit.Test;
+
+public class LexerMetricsTest {
+    @Test
+    public void nodes() throws IOException {
+        final String document = "<?xml version=1?><!DOCTYPE x><a b=1 c=2>t<>x</a><b d>";
+        final LexerMetrics metrics = new LexerMetrics();
+        final Lexer lexer = new Lexer(new StringReader(document), true);
+        lexer.setParseListener(metrics);
+        for (Node node : LexerTests.nodes(lexer)) {
+            if (node instanceof TagNode && ((TagNode) node).getTagName().equals("a")) {
+                ((TagNode) node).getAttributes();
+            }
+        }
+        assertEquals(document.length(), metrics.getCharactersRead());
+        assertEquals(1, metrics.getXmlHeaders());
+        assertEquals(1, metrics.getUnknownTags());
+        assertEquals(3, metrics.getTagNodes());
+        assertEquals(2, metrics.getTextNodes());
+        assertEquals(1, metrics.getEmptyTags());
+        // only the attributes of a were needed
+        assertEquals(2, metrics.getAttributes());
+        assertEquals(0, metrics.getComments());
+        assertEquals(0, metrics.getDocuments());
+    }
+    
+    @Test
+    public void rawText() throws IOException {
+        final LexerMetrics metrics = new LexerMetrics();
+        final Lexer lexer = new Lexer(new StringReader("<!-- a --><![CDATA[<b>]]><!-- c -->"), true);
+        lexer.setRawText(true);
+        lexer.setParseListener(metrics);
+        LexerTests.lex(lexer);
+        assertEquals(2, metrics.getComments());
+        assertEquals(1, metrics.getCDataSections());
+        assertEquals(0, metrics.getUnknownTags());
+        assertEquals(0, metrics.getTagNodes());
+    }
+    
+    @Test
+    public void dom() throws IOException {
+        final LexerMetrics metrics = new LexerMetrics();
+        for (String document : new String[] { "<a><b><c></c></b></x></a>", "<a></b>" }) {
+            final DOMParser parser = new DOMParser(new Lexer(new StringReader(document), true));
+            parser.setParseListener(metrics);
+            parser.parse();
+        }
+        assertEquals(2, metrics.getDocuments());
+        assertEquals(3, metrics.getMaxDepth());
+        assertEquals(2, metrics.getUnmatchedEndTags());
+        assertTrue(metrics.getMaxParseTimeNanos() > 0);
+        assertTrue(metrics.getParseTimeNanos() >= metrics.getMaxParseTimeNanos());
+        
+        metrics.reset();
+        assertEquals(0, metrics.getDocuments());
+        assertEquals(0, metrics.getMaxDepth());
+        assertEquals(0, metrics.getUnmatchedEndTags());
+        assertEquals(0, metrics.getParseTimeNanos());
+        assertEquals(0, metrics.getMaxParseTimeNanos());
+    }
+    
+    @Test
+    public void register() throws Exception {
+        final LexerMetrics metrics = new LexerMetrics();
+        final ObjectName name = metrics.register("test");
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            final Lexer lexer = new Lexer(new StringReader("a<b>c"));
+            lexer.setParseListener(metrics);
+            LexerTests.lex(lexer);
+            assertEquals(2L, server.getAttribute(name, "TextNodes"));
+            assertEquals(5L, server.getAttribute(name, "CharactersRead"));
+            server.invoke(name, "reset", null, null);
+            assertEquals(0L, metrics.getTextNodes());
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
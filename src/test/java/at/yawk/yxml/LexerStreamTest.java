@@ -0,0 +1,86 @@
+package at.yawk.yxml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+public class LexerStreamTest {
+    @Test
+    public void sameNodes() throws IOException {
+        final Random random = new Random(10);
+        for (int i = 0; i < 200; i++) {
+            final String document = LexerTests.randomDocument(random);
+            final Lexer lexer = new Lexer(new StringReader(document), true);
+            final List<String> nodes = lexer.stream().map(LexerTests::describe).collect(Collectors.toList());
+            assertEquals(document, LexerTests.expected(document, true), nodes);
+        }
+    }
+    
+    /**
+     * Batches split off for parallel streams keep the document order.
+     */
+    @Test
+    public void parallel() throws IOException {
+        final StringBuilder b = new StringBuilder();
+        for (int i = 0; i < 30000; i++) {
+            b.append("<i n=").append(i).append('>');
+        }
+        final String document = b.toString();
+        final List<String> nodes = new Lexer(new StringReader(document), true).stream()
+                .parallel()
+                .map(LexerTests::describe)
+                .collect(Collectors.toList());
+        assertEquals(LexerTests.expected(document, true), nodes);
+    }
+    
+    @Test
+    public void shortCircuit() {
+        final StringBuilder b = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            b.append("<a>text</a>");
+        }
+        final AtomicInteger read = new AtomicInteger();
+        final Reader reader = new StringReader(b.toString()) {
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                final int n = super.read(cbuf, off, len);
+                read.addAndGet(Math.max(n, 0));
+                return n;
+            }
+        };
+        final Node first = new Lexer(reader, true).stream().filter(node -> node instanceof TextNode).findFirst().get();
+        assertEquals("text", first.getRawContent());
+        assertTrue(read.get() < b.length() / 10);
+    }
+    
+    @Test
+    public void ioError() {
+        final Reader reader = new Reader() {
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                throw new IOException("broken");
+            }
+            
+            @Override
+            public void close() {
+            }
+        };
+        try {
+            new Lexer(reader).stream().count();
+            fail();
+        } catch (UncheckedIOException e) {
+            assertEquals("broken", e.getCause().getMessage());
+        }
+    }
+}
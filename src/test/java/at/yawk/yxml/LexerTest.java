@@ -0,0 +1,117 @@
+package at.yawk.yxml;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LexerTest {
+    private static final int DOCUMENTS = 500;
+    private static final String PAGE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<!DOCTYPE html>\n"
+            + "<html lang=en>\n"
+            + " <body class=\"a b\" data-x='1'>\n"
+            + "  text &amp; more<br/>\n"
+            + "  <img src=x.png alt=\"\">\n"
+            + "  <input checked disabled>\n"
+            + " </body>\n"
+            + "</html>\n";
+    private static final String[] PAGE_CLEANED = {
+            "XmlHeader[xml version=\"1.0\" encoding=\"UTF-8\"]START_END|xml|[Attribute [key=version, value=1.0], Attribute [key=encoding, value=UTF-8]]",
+            "UnknownTagNode[!DOCTYPE html]",
+            "TagNode[html lang=en]START|html|[Attribute [key=lang, value=en]]",
+            "TagNode[body class=\"a b\" data-x='1']START|body|[Attribute [key=class, value=a b], Attribute [key=data-x, value=1]]",
+            "TextNode[text &amp; more]",
+            "TagNode[br/]START_END|br/|[]",
+            "TagNode[img src=x.png alt=\"\"]START|img|[Attribute [key=src, value=x.png], Attribute [key=alt, value=]]",
+            "TagNode[input checked disabled]START|input|[Attribute [key=checked, value=null], Attribute [key=disabled, value=null]]",
+            "TagNode[/body]END|body|[]",
+            "TagNode[/html]END|html|[]" };
+    
+    /**
+     * The nodes returned for a typical page, as lexed by the original
+     * implementation that read the input character by character.
+     */
+    @Test
+    public void golden() throws IOException {
+        assertLexes(PAGE, false,
+                "TextNode[]",
+                "XmlHeader[xml version=\"1.0\" encoding=\"UTF-8\"]START_END|xml|[Attribute [key=version, value=1.0], Attribute [key=encoding, value=UTF-8]]",
+                "TextNode[\n]",
+                "UnknownTagNode[!DOCTYPE html]",
+                "TextNode[\n]",
+                "TagNode[html lang=en]START|html|[Attribute [key=lang, value=en]]",
+                "TextNode[\n ]",
+                "TagNode[body class=\"a b\" data-x='1']START|body|[Attribute [key=class, value=a b], Attribute [key=data-x, value=1]]",
+                "TextNode[\n  text &amp; more]",
+                "TagNode[br/]START_END|br/|[]",
+                "TextNode[\n  ]",
+                "TagNode[img src=x.png alt=\"\"]START|img|[Attribute [key=src, value=x.png], Attribute [key=alt, value=]]",
+                "TextNode[\n  ]",
+                "TagNode[input checked disabled]START|input|[Attribute [key=checked, value=null], Attribute [key=disabled, value=null]]",
+                "TextNode[\n ]",
+                "TagNode[/body]END|body|[]",
+                "TextNode[\n]",
+                "TagNode[/html]END|html|[]",
+                "TextNode[\n]");
+        assertLexes(PAGE, true, PAGE_CLEANED);
+        assertLexes("plain text", false, "TextNode[plain text]");
+    }
+    
+    /**
+     * A document much larger than the lexer buffer.
+     */
+    @Test
+    public void goldenLarge() throws IOException {
+        final StringBuilder document = new StringBuilder();
+        final List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 1000; i++) {
+            document.append(PAGE);
+            expected.addAll(Arrays.asList(PAGE_CLEANED));
+        }
+        assertEquals(expected, LexerTests.lex(new Lexer(new StringReader(document.toString()), true)));
+    }
+    
+    /**
+     * Malformed input as lexed by the original implementation.
+     */
+    @Test
+    public void goldenMalformed() throws IOException {
+        final String document = "<a href = \"x\" title=y>< b><>tail</a></x><c";
+        final String a = "TagNode[a href = \"x\" title=y]START|a|"
+                + "[Attribute [key=href, value=null], Attribute [key=\"x\", value=null], Attribute [key=title, value=y]]";
+        assertLexes(document, false,
+                "TextNode[]", a, "TextNode[]", "UnknownTagNode[ b]", "TextNode[]", "EmptyTagNode[]", "TextNode[tail]",
+                "TagNode[/a]END|a|[]", "TextNode[]", "TagNode[/x]END|x|[]", "TextNode[]", "TagNode[c]START|c|[]");
+        assertLexes(document, true,
+                a, "UnknownTagNode[ b]", "EmptyTagNode[]", "TextNode[tail]", "TagNode[/a]END|a|[]", "TagNode[/x]END|x|[]",
+                "TagNode[c]START|c|[]");
+    }
+    
+    /**
+     * Lexing must not depend on where the reader cuts the input.
+     */
+    @Test
+    public void chunkedReader() throws IOException {
+        final Random random = new Random(1);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            final String document = LexerTests.randomDocument(random);
+            final boolean cleanup = i % 2 == 0;
+            final Lexer lexer = new Lexer(LexerTests.chunkedReader(document, random, 20), cleanup);
+            assertEquals(document, LexerTests.expected(document, cleanup), LexerTests.lex(lexer));
+        }
+    }
+    
+    private static void assertLexes(String document, boolean cleanup, String... nodes) throws IOException {
+        final List<String> expected = Arrays.asList(nodes);
+        assertEquals(expected, LexerTests.lex(new Lexer(new StringReader(document), cleanup)));
+        // a buffer refill between any two characters
+        assertEquals(expected, LexerTests.lex(new Lexer(LexerTests.chunkedReader(document, new Random(0), 1), cleanup)));
+    }
+}
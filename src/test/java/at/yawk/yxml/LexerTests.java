@@ -0,0 +1,115 @@
+package at.yawk.yxml;
+
+import java.io.EOFException;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Inputs and node descriptions shared by the lexer tests.
+ */
+final class LexerTests {
+    /**
+     * Pieces that random documents are made of: well-formed tags as well as
+     * stray delimiters, quotes and multi-byte characters.
+     */
+    private static final String[] PARTS = {
+            "<", ">", "a", " ", "\n", "=", "\"", "'", "/", "?", "<a href=\"x\">", "</a>", "<br/>",
+            "<?xml version='1.0'?>", "&amp;", "<!-- c > d -->", "text", "<>", "<div class=x id='y'>", "</div>",
+            "\u00e9", "\u20ac", "\ud83d\ude00", "<p title='\u00e9\u20ac'>" };
+    /**
+     * Pieces of documents for raw-text mode, including the terminators of
+     * every raw token.
+     */
+    private static final String[] RAW_PARTS = {
+            "<", ">", "a", " ", "'", "\"", "=", "<!--", "-->", "-", "]]>", "<![CDATA[", "<?", "?>", "<script>",
+            "</script>", "</SCRIPT", "<style x='>'>", "</style>", "<a b='>'>", "text" };
+    
+    private LexerTests() {
+    }
+    
+    static String randomDocument(Random random) {
+        return randomDocument(random, PARTS);
+    }
+    
+    static String randomRawTextDocument(Random random) {
+        return randomDocument(random, RAW_PARTS);
+    }
+    
+    private static String randomDocument(Random random, String[] parts) {
+        // mostly short documents, some longer than the lexer buffer
+        final int count = random.nextInt(random.nextInt(10) == 0 ? 10000 : 60);
+        final StringBuilder b = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            b.append(parts[random.nextInt(parts.length)]);
+        }
+        return b.toString();
+    }
+    
+    /**
+     * A reader that returns the given text in chunks of random length, so
+     * tokens are cut off at arbitrary positions.
+     */
+    static Reader chunkedReader(String text, final Random random, final int maxChunk) {
+        return new FilterReader(new StringReader(text)) {
+            @Override
+            public int read(char[] cbuf, int off, int len) throws IOException {
+                return super.read(cbuf, off, Math.max(1, Math.min(len, random.nextInt(maxChunk))));
+            }
+        };
+    }
+    
+    /**
+     * Lex all nodes with {@link Lexer#next()} and describe them.
+     */
+    static List<String> lex(Lexer lexer) throws IOException {
+        return describe(nodes(lexer));
+    }
+    
+    /**
+     * Lex all nodes with {@link Lexer#next()}.
+     */
+    static List<Node> nodes(Lexer lexer) throws IOException {
+        final List<Node> nodes = new ArrayList<Node>();
+        try {
+            while (true) {
+                nodes.add(lexer.next());
+            }
+        } catch (EOFException e) {
+            return nodes;
+        }
+    }
+    
+    /**
+     * The nodes of a whole document, lexed from a {@link StringReader}.
+     */
+    static List<String> expected(String document, boolean cleanup) throws IOException {
+        return lex(new Lexer(new StringReader(document), cleanup));
+    }
+    
+    static List<String> describe(Iterable<Node> nodes) {
+        final List<String> descriptions = new ArrayList<String>();
+        for (Node node : nodes) {
+            descriptions.add(describe(node));
+        }
+        return descriptions;
+    }
+    
+    /**
+     * Everything a node exposes, so two nodes with the same description are
+     * interchangeable.
+     */
+    static String describe(Node node) {
+        final StringBuilder b = new StringBuilder();
+        b.append(node.getClass().getSimpleName()).append('[').append(node.getRawContent()).append(']');
+        if (node instanceof TagNode) {
+            final TagNode tag = (TagNode) node;
+            b.append(tag.getType()).append('|').append(tag.getTagName()).append('|').append(tag.getAttributes());
+        }
+        return b.toString();
+    }
+}
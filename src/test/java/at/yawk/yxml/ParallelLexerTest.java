@@ -0,0 +1,102 @@
+package at.yawk.yxml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+public class ParallelLexerTest {
+    private static final Charset UTF_8 = StandardCharsets.UTF_8;
+    
+    @Test
+    public void sameNodes() throws IOException {
+        final Random random = new Random(7);
+        final ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            for (int i = 0; i < 500; i++) {
+                final String document = LexerTests.randomDocument(random);
+                final boolean cleanup = i % 2 == 0;
+                final ParallelLexer lexer = new ParallelLexer(ByteBuffer.wrap(document.getBytes(UTF_8)));
+                lexer.setPool(pool);
+                // chunks are cut at every possible position
+                lexer.setChunkSize(1 + i % 40);
+                lexer.setCleanupWhitespace(cleanup);
+                assertEquals(document, LexerTests.expected(document, cleanup), LexerTests.describe(lexer));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    @Test
+    public void fileChannel() throws IOException {
+        final Random random = new Random(8);
+        final Path file = Files.createTempFile("yxml", ".xml");
+        try {
+            for (int i = 0; i < 50; i++) {
+                final String prefix = i % 3 == 0 ? "skipped <prefix>" : "";
+                final String document = LexerTests.randomDocument(random);
+                Files.write(file, (prefix + document).getBytes(UTF_8));
+                final FileChannel channel = FileChannel.open(file);
+                try {
+                    // lexing starts at the current position of the channel
+                    channel.position(prefix.length());
+                    final ParallelLexer lexer = new ParallelLexer(channel, UTF_8);
+                    lexer.setChunkSize(1 + i % 30);
+                    final List<String> nodes = lexer.stream().map(LexerTests::describe).collect(Collectors.toList());
+                    assertEquals(document, LexerTests.expected(document, false), nodes);
+                } finally {
+                    channel.close();
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+    
+    @Test
+    public void sharedSymbolTable() {
+        final ParallelLexer lexer = new ParallelLexer(ByteBuffer.wrap("<a>x</a><a>y</a><a>z</a>".getBytes(UTF_8)));
+        lexer.setChunkSize(1);
+        final List<String> names = new ArrayList<String>();
+        for (Node node : lexer) {
+            if (node instanceof TagNode) {
+                names.add(((TagNode) node).getTagName());
+            }
+        }
+        assertEquals(6, names.size());
+        for (String name : names) {
+            assertSame(names.get(0), name);
+        }
+    }
+    
+    @Test
+    public void invalidSettings() {
+        final ParallelLexer lexer = new ParallelLexer(ByteBuffer.allocate(0));
+        try {
+            lexer.setChunkSize(0);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new ParallelLexer(ByteBuffer.allocate(0), StandardCharsets.UTF_16);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals(false, lexer.iterator().hasNext());
+    }
+}
@@ -0,0 +1,125 @@
+package at.yawk.yxml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * A {@link PushLexer} must return the same nodes as {@link Lexer#next()} on
+ * the whole document, no matter where the input is cut into pieces.
+ */
+public class PushLexerTest {
+    private static final Charset UTF_8 = StandardCharsets.UTF_8;
+    private static final int DOCUMENTS = 500;
+    
+    @Test
+    public void chars() throws IOException {
+        final Random random = new Random(3);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            final String document = LexerTests.randomDocument(random);
+            final boolean cleanup = i % 2 == 0;
+            final List<Node> nodes = new ArrayList<Node>();
+            final PushLexer lexer = new PushLexer(collector(nodes));
+            lexer.setCleanupWhitespace(cleanup);
+            lexer.setZeroCopy(i % 3 == 0);
+            final char[] chars = document.toCharArray();
+            for (int offset = 0; offset < chars.length;) {
+                final int length = Math.min(chars.length - offset, random.nextInt(40));
+                lexer.feed(chars, offset, length);
+                offset += length;
+            }
+            lexer.finish();
+            assertEquals(document, LexerTests.expected(document, cleanup), LexerTests.describe(nodes));
+        }
+    }
+    
+    @Test
+    public void bytes() throws IOException {
+        final Random random = new Random(4);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            final String document = LexerTests.randomDocument(random);
+            final boolean cleanup = i % 2 == 0;
+            final List<Node> nodes = new ArrayList<Node>();
+            final PushLexer lexer = new PushLexer(UTF_8, collector(nodes));
+            lexer.setCleanupWhitespace(cleanup);
+            // cuts through multi-byte characters, too
+            final byte[] bytes = document.getBytes(UTF_8);
+            for (int offset = 0; offset < bytes.length;) {
+                final int length = Math.min(bytes.length - offset, random.nextInt(40));
+                lexer.feed(ByteBuffer.wrap(bytes, offset, length));
+                offset += length;
+            }
+            lexer.finish();
+            assertEquals(document, LexerTests.expected(document, cleanup), LexerTests.describe(nodes));
+        }
+    }
+    
+    /**
+     * Nodes are passed on as soon as they are complete; the last token waits
+     * for more input or {@link PushLexer#finish()}.
+     */
+    @Test
+    public void incremental() {
+        final List<Node> nodes = new ArrayList<Node>();
+        final PushLexer lexer = new PushLexer(collector(nodes));
+        lexer.setCleanupWhitespace(true);
+        lexer.feed("<a>te".toCharArray());
+        assertEquals(Arrays.asList("TagNode[a]START|a|[]"), LexerTests.describe(nodes));
+        lexer.feed("xt</".toCharArray());
+        assertEquals(Arrays.asList("TagNode[a]START|a|[]", "TextNode[text]"), LexerTests.describe(nodes));
+        lexer.feed("a".toCharArray());
+        assertEquals(2, nodes.size());
+        lexer.finish();
+        assertEquals(Arrays.asList("TagNode[a]START|a|[]", "TextNode[text]", "TagNode[/a]END|a|[]"),
+                LexerTests.describe(nodes));
+    }
+    
+    @Test
+    public void invalidIncompleteCharacter() {
+        final List<Node> nodes = new ArrayList<Node>();
+        final PushLexer lexer = new PushLexer(UTF_8, collector(nodes));
+        lexer.feed(ByteBuffer.wrap(new byte[] { 'a', (byte) 0xE2, (byte) 0x82 }));
+        lexer.finish();
+        assertEquals(Arrays.asList("TextNode[a\uFFFD]"), LexerTests.describe(nodes));
+    }
+    
+    @Test
+    public void states() {
+        final PushLexer lexer = new PushLexer(collector(new ArrayList<Node>()));
+        try {
+            lexer.feed(ByteBuffer.allocate(1));
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+        assertFalse(lexer.isFinished());
+        lexer.finish();
+        lexer.finish();
+        assertTrue(lexer.isFinished());
+        try {
+            lexer.feed(new char[1]);
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+    }
+    
+    private static PushLexer.NodeHandler collector(final List<Node> nodes) {
+        return new PushLexer.NodeHandler() {
+            @Override
+            public void handleNode(Node node) {
+                nodes.add(node);
+            }
+        };
+    }
+}
@@ -0,0 +1,144 @@
+package at.yawk.yxml;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Raw-text mode, where comments, CDATA sections, processing instructions,
+ * quoted attribute values and script content are single tokens.
+ */
+public class RawTextTest {
+    @Test
+    public void comment() throws IOException {
+        assertLexes("<!-- a > b -- c -->x",
+                "TextNode[]", "CommentNode[!-- a > b -- c --]", "TextNode[x]");
+        assertLexes("<!---->q<!-->r-->",
+                "TextNode[]", "CommentNode[!----]", "TextNode[q]", "CommentNode[!-->r--]");
+    }
+    
+    @Test
+    public void cdata() throws IOException {
+        assertLexes("<![CDATA[x > <y> ]] >]]>z",
+                "TextNode[]", "CDataNode[![CDATA[x > <y> ]] >]]]", "TextNode[z]");
+    }
+    
+    @Test
+    public void processingInstruction() throws IOException {
+        assertLexes("<?php echo '>'; ?>t",
+                "TextNode[]",
+                "XmlHeader[php echo '>'; ]START_END|php|[Attribute [key=echo, value=null], Attribute [key='>';, value=null]]",
+                "TextNode[t]");
+    }
+    
+    @Test
+    public void quotedGreaterThan() throws IOException {
+        assertLexes("<a title='x>y' b=\"<\">t</a>",
+                "TextNode[]",
+                "TagNode[a title='x>y' b=\"<\"]START|a|[Attribute [key=title, value=x>y], Attribute [key=b, value=<]]",
+                "TextNode[t]",
+                "TagNode[/a]END|a|[]");
+    }
+    
+    @Test
+    public void script() throws IOException {
+        assertLexes("<script type=x>if (a < b && c > d) { '</scripts>' }</SCRIPT >",
+                "TextNode[]",
+                "TagNode[script type=x]START|script|[Attribute [key=type, value=x]]",
+                "TextNode[if (a < b && c > d) { '</scripts>' }]",
+                "TagNode[/SCRIPT ]END|SCRIPT|[]");
+        assertLexes("<style>p > a {}</style>",
+                "TextNode[]",
+                "TagNode[style]START|style|[]",
+                "TextNode[p > a {}]",
+                "TagNode[/style]END|style|[]");
+    }
+    
+    @Test
+    public void commentAndCDataContent() throws IOException {
+        final Lexer lexer = rawTextLexer(new StringReader("<!-- a > b --><![CDATA[x]]>"));
+        lexer.next();
+        assertEquals(" a > b ", ((CommentNode) lexer.next()).getComment());
+        lexer.next();
+        assertEquals("x", ((CDataNode) lexer.next()).getData());
+    }
+    
+    @Test
+    public void cursor() throws IOException {
+        final LexerCursor cursor = new LexerCursor(rawTextLexer(new StringReader("<!-- a > b --><![CDATA[x]]><!x>")));
+        assertEquals(LexerCursor.Event.TEXT, cursor.advance());
+        assertEquals(LexerCursor.Event.COMMENT, cursor.advance());
+        assertEquals("!-- a > b --", cursor.text());
+        cursor.advance();
+        assertEquals(LexerCursor.Event.CDATA, cursor.advance());
+        assertEquals("![CDATA[x]]", cursor.text());
+        cursor.advance();
+        assertEquals(LexerCursor.Event.UNKNOWN_TAG, cursor.advance());
+        assertEquals(LexerCursor.Event.END_DOCUMENT, cursor.advance());
+        
+        // outside of raw-text mode, comments are unknown tags
+        final LexerCursor plain = new LexerCursor(new Lexer(new StringReader("<!-- a -->"), true));
+        assertEquals(LexerCursor.Event.UNKNOWN_TAG, plain.advance());
+    }
+    
+    @Test(expected = UnsupportedOperationException.class)
+    public void byteBufferLexer() {
+        new ByteBufferLexer(ByteBuffer.allocate(0)).setRawText(true);
+    }
+    
+    /**
+     * Raw tokens must be found no matter where the input is cut, including
+     * inside their terminators.
+     */
+    @Test
+    public void chunkBoundaries() throws IOException {
+        final Random random = new Random(8);
+        for (int i = 0; i < 1000; i++) {
+            final String document = LexerTests.randomRawTextDocument(random);
+            final List<String> expected = LexerTests.lex(rawTextLexer(new StringReader(document)));
+            
+            final Lexer chunked = rawTextLexer(LexerTests.chunkedReader(document, random, 7));
+            chunked.setZeroCopy(i % 2 == 0);
+            assertEquals(document, expected, LexerTests.lex(chunked));
+            
+            final List<String> pushed = new ArrayList<String>();
+            final PushLexer pushLexer = new PushLexer(new PushLexer.NodeHandler() {
+                @Override
+                public void handleNode(Node node) {
+                    pushed.add(LexerTests.describe(node));
+                }
+            });
+            pushLexer.setRawText(true);
+            final char[] chars = document.toCharArray();
+            for (int offset = 0; offset < chars.length;) {
+                final int length = Math.min(chars.length - offset, random.nextInt(9));
+                pushLexer.feed(chars, offset, length);
+                offset += length;
+            }
+            pushLexer.finish();
+            assertEquals(document, expected, pushed);
+        }
+    }
+    
+    private static void assertLexes(String document, String... nodes) throws IOException {
+        final List<String> expected = Arrays.asList(nodes);
+        assertEquals(expected, LexerTests.lex(rawTextLexer(new StringReader(document))));
+        // every token cut after each character
+        assertEquals(expected, LexerTests.lex(rawTextLexer(LexerTests.chunkedReader(document, new Random(0), 2))));
+    }
+    
+    private static Lexer rawTextLexer(Reader reader) {
+        final Lexer lexer = new Lexer(reader);
+        lexer.setRawText(true);
+        return lexer;
+    }
+}
@@ -0,0 +1,97 @@
+package at.yawk.yxml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+/**
+ * {@link Lexer#skipElement()} and {@link Lexer#skipTo(String)}.
+ */
+public class SkipTest {
+    @Test
+    public void nestedSameName() throws IOException {
+        final Lexer lexer = lexer("<a><b><a>x</a><a/></b></a>y");
+        lexer.next();
+        lexer.skipElement();
+        assertEquals("TagNode[/a]END|a|[]", LexerTests.describe(lexer.currentNode));
+        assertEquals("TextNode[y]", LexerTests.describe(lexer.next()));
+    }
+    
+    @Test
+    public void unclosedChildren() throws IOException {
+        final Lexer lexer = lexer("<ul><li>a<li>b</ul><p>");
+        lexer.next();
+        lexer.skipElement();
+        assertEquals("TagNode[/ul]END|ul|[]", LexerTests.describe(lexer.currentNode));
+        assertEquals("TagNode[p]START|p|[]", LexerTests.describe(lexer.next()));
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void selfClosing() throws IOException {
+        final Lexer lexer = lexer("<a/>x");
+        lexer.next();
+        lexer.skipElement();
+    }
+    
+    @Test(expected = IllegalStateException.class)
+    public void endTag() throws IOException {
+        final Lexer lexer = lexer("</a>x");
+        lexer.next();
+        lexer.skipElement();
+    }
+    
+    @Test
+    public void unterminated() throws IOException {
+        final Lexer lexer = lexer("<a><a></a>x");
+        lexer.next();
+        lexer.skipElement();
+        assertNull(lexer.currentNode);
+        try {
+            lexer.next();
+            fail();
+        } catch (EOFException expected) {
+        }
+    }
+    
+    @Test
+    public void rawText() throws IOException {
+        final String document = "<a><script>'</a>'</script><!-- </a> --><![CDATA[</a>]]></a>x";
+        final Lexer lexer = lexer(document);
+        lexer.setRawText(true);
+        lexer.next();
+        lexer.skipElement();
+        assertEquals("TagNode[/a]END|a|[]", LexerTests.describe(lexer.currentNode));
+        assertEquals("TextNode[x]", LexerTests.describe(lexer.next()));
+        
+        // outside of raw-text mode the first end tag in the script counts
+        final Lexer plain = lexer(document);
+        plain.next();
+        plain.skipElement();
+        assertEquals("TextNode[']", LexerTests.describe(plain.next()));
+    }
+    
+    @Test
+    public void skipTo() throws IOException {
+        final Lexer lexer = lexer("<a><b x=1/><b x=2>");
+        assertEquals("TagNode[b x=1/]START_END|b|[Attribute [key=x, value=1]]",
+                LexerTests.describe(lexer.skipTo("b")));
+        assertEquals("TagNode[b x=2]START|b|[Attribute [key=x, value=2]]", LexerTests.describe(lexer.skipTo("b")));
+        assertEquals("TagNode[b x=2]START|b|[Attribute [key=x, value=2]]", LexerTests.describe(lexer.currentNode));
+        try {
+            lexer.skipTo("b");
+            fail();
+        } catch (EOFException expected) {
+        }
+        assertNull(lexer.currentNode);
+    }
+    
+    private static Lexer lexer(String document) {
+        return new Lexer(new StringReader(document), true);
+    }
+}
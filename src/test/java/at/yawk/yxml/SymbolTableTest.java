@@ -0,0 +1,106 @@
+package at.yawk.yxml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class SymbolTableTest {
+    @Test
+    public void intern() {
+        final SymbolTable table = new SymbolTable();
+        final String a = table.intern(new String("name"));
+        assertSame(a, table.intern("xnamex".toCharArray(), 1, 4));
+        assertSame(a, table.intern(new StringBuilder("--name"), 2, 4));
+        assertEquals(1, table.size());
+        // same hash code
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        final String aa = table.intern("Aa");
+        final String bb = table.intern("BB");
+        assertEquals("BB", bb);
+        assertSame(aa, table.intern("Aa".toCharArray(), 0, 2));
+        assertSame(bb, table.intern("BB".toCharArray(), 0, 2));
+        assertSame(table.intern(""), table.intern(new char[0], 0, 0));
+    }
+    
+    @Test
+    public void growAndLimit() {
+        final SymbolTable table = new SymbolTable(1000);
+        final List<String> symbols = new ArrayList<String>();
+        for (int i = 0; i < 1500; i++) {
+            symbols.add(table.intern(new String("n" + i)));
+        }
+        assertEquals(1000, table.size());
+        for (int i = 0; i < 1000; i++) {
+            assertSame(symbols.get(i), table.intern("n" + i));
+        }
+        // names beyond the limit are not kept
+        assertEquals("n1200", table.intern("n1200"));
+        assertNotSame(symbols.get(1200), table.intern("n1200"));
+        assertEquals(1000, table.size());
+    }
+    
+    @Test
+    public void concurrent() throws Exception {
+        final SymbolTable table = new SymbolTable();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<String[]>> results = new ArrayList<Future<String[]>>();
+            for (int t = 0; t < 4; t++) {
+                results.add(executor.submit(new Callable<String[]>() {
+                    @Override
+                    public String[] call() {
+                        final String[] symbols = new String[2000];
+                        for (int i = 0; i < symbols.length; i++) {
+                            symbols[i] = table.intern(("s" + i).toCharArray(), 0, ("s" + i).length());
+                        }
+                        return symbols;
+                    }
+                }));
+            }
+            final String[] first = results.get(0).get();
+            for (Future<String[]> result : results) {
+                final String[] symbols = result.get();
+                for (int i = 0; i < symbols.length; i++) {
+                    assertSame(first[i], symbols[i]);
+                }
+            }
+            assertEquals(2000, table.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+    
+    @Test
+    public void lexer() throws IOException {
+        final SymbolTable table = new SymbolTable();
+        final Lexer first = new Lexer(new StringReader("<item key=1>"));
+        final Lexer second = new Lexer(new StringReader("<item key=2>"), true);
+        first.setSymbolTable(table);
+        second.setSymbolTable(table);
+        first.next();
+        final TagNode a = (TagNode) first.next();
+        final TagNode b = (TagNode) second.next();
+        assertSame(a.getTagName(), b.getTagName());
+        assertSame(a.getAttributes().get(0).getKey(), b.getAttributes().get(0).getKey());
+        assertSame(table.intern("item"), a.getTagName());
+        
+        // without a table, names are not shared
+        final Lexer plain = new Lexer(new StringReader("<item><item>"), true);
+        plain.setSymbolTable(null);
+        final TagNode c = (TagNode) plain.next();
+        final TagNode d = (TagNode) plain.next();
+        assertEquals(c.getTagName(), d.getTagName());
+        assertNotSame(c.getTagName(), d.getTagName());
+    }
+}
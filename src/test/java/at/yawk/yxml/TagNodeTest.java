@@ -0,0 +1,136 @@
+package at.yawk.yxml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import at.yawk.yxml.TagNode.Attribute;
+import at.yawk.yxml.TagNode.TagType;
+import at.yawk.yxml.dom.DOMNode;
+import at.yawk.yxml.dom.DOMParser;
+
+import org.junit.Test;
+
+public class TagNodeTest {
+    @Test
+    public void getAttribute() {
+        final TagNode tag = new TagNode("a href='/x' title=\"t\" checked");
+        assertEquals("/x", tag.getAttribute("href"));
+        assertEquals("t", tag.getAttribute("title"));
+        assertNull(tag.getAttribute("checked"));
+        assertNull(tag.getAttribute("missing"));
+        assertTrue(tag.hasAttribute("checked"));
+        assertFalse(tag.hasAttribute("missing"));
+        assertFalse(tag.hasAttribute("HREF"));
+    }
+    
+    @Test
+    public void manyAttributes() {
+        final StringBuilder b = new StringBuilder("x");
+        for (int i = 0; i < 40; i++) {
+            b.append(" a").append(i).append("=v").append(i);
+        }
+        final TagNode tag = new TagNode(b.toString());
+        for (int i = 0; i < 40; i++) {
+            assertEquals("v" + i, tag.getAttribute("a" + i));
+            assertTrue(tag.hasAttribute("a" + i));
+        }
+        assertNull(tag.getAttribute("a40"));
+        assertFalse(tag.hasAttribute("b"));
+    }
+    
+    /**
+     * The last of duplicate attributes wins everywhere, as it always did for
+     * the attribute map.
+     */
+    @SuppressWarnings("deprecation")
+    @Test
+    public void duplicateAttributes() throws IOException {
+        final String small = "a x=1 y x=2";
+        final StringBuilder large = new StringBuilder("a x=1");
+        for (int i = 0; i < 20; i++) {
+            large.append(" a").append(i);
+        }
+        large.append(" x=2");
+        for (String content : new String[] { small, large.toString() }) {
+            final TagNode tag = new TagNode(content);
+            assertTrue(tag.hasAttribute("x"));
+            assertEquals("2", tag.getAttribute("x"));
+            assertEquals("2", tag.getAttributesMap().get("x"));
+            assertEquals("2", ((Node) new TagNode(content)).getAttribute("x"));
+            
+            final Lexer lexer = new Lexer(new StringReader("<" + content + ">"));
+            lexer.next();
+            lexer.next();
+            assertEquals("2", lexer.getAttribute("x"));
+            
+            assertTrue(DOMNode.getAttributeEqualsMatcher("x", "2").matches(new DOMNode(tag)));
+            assertFalse(DOMNode.getAttributeEqualsMatcher("x", "1").matches(new DOMNode(tag)));
+        }
+    }
+    
+    @Test
+    public void types() {
+        assertEquals(TagType.START, new TagNode("a x=1").getType());
+        final TagNode end = new TagNode("/a");
+        assertEquals(TagType.END, end.getType());
+        assertEquals("a", end.getTagName());
+        final TagNode empty = new TagNode("br /");
+        assertEquals(TagType.START_END, empty.getType());
+        assertEquals("br", empty.getTagName());
+        assertTrue(empty.getAttributes().isEmpty());
+        // the trailing slash is not part of the value
+        assertEquals("x", new TagNode("img src=x/").getAttribute("src"));
+    }
+    
+    /**
+     * Attributes are only parsed when asked for, and lookups by name only
+     * parse them up to the first match.
+     */
+    @Test
+    public void lazyAttributes() throws IOException {
+        for (boolean zeroCopy : new boolean[] { false, true }) {
+            final LexerMetrics metrics = new LexerMetrics();
+            final Lexer lexer = new Lexer(new StringReader("<a x=1 y=2 z>"), true);
+            lexer.setZeroCopy(zeroCopy);
+            lexer.setParseListener(metrics);
+            final TagNode tag = (TagNode) lexer.next();
+            assertEquals("a", tag.getTagName());
+            assertEquals(TagType.START, tag.getType());
+            assertTrue(tag.hasAttribute("y"));
+            assertTrue(tag.hasAttribute("x"));
+            assertEquals(0, metrics.getAttributes());
+            assertFalse(tag.hasAttribute("q"));
+            assertEquals(3, metrics.getAttributes());
+            
+            final List<Attribute> attributes = tag.getAttributes();
+            assertEquals(3, attributes.size());
+            assertEquals("x", attributes.get(0).getKey());
+            assertEquals("2", attributes.get(1).getValue());
+            assertNull(attributes.get(2).getValue());
+            // reported once
+            assertEquals(3, metrics.getAttributes());
+        }
+    }
+    
+    /**
+     * Building a DOM only needs tag names.
+     */
+    @Test
+    public void domWithoutAttributes() throws IOException {
+        final LexerMetrics metrics = new LexerMetrics();
+        final Lexer lexer = new Lexer(new StringReader("<a x=1><b y=2 z=3></b><c/></x></a>"), true);
+        lexer.setParseListener(metrics);
+        final DOMNode root = new DOMParser(lexer).parse();
+        assertEquals(6, metrics.getTagNodes());
+        assertEquals(0, metrics.getAttributes());
+        final TagNode b = (TagNode) root.getChildren().get(0).getChildren().get(0).getElement();
+        assertEquals("3", b.getAttribute("z"));
+        assertEquals(2, metrics.getAttributes());
+    }
+}
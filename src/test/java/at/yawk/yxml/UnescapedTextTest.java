@@ -0,0 +1,60 @@
+package at.yawk.yxml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import at.yawk.yxml.TagNode.Attribute;
+
+import org.junit.Test;
+
+public class UnescapedTextTest {
+    @Test
+    public void textNode() {
+        final TextNode plain = new TextNode("no references");
+        assertSame(plain.getText(), plain.getUnescapedText(EntityNamespace.HTML_NAMESPACE));
+        
+        final TextNode node = new TextNode("a &amp; &nbsp;");
+        final String xml = node.getUnescapedText(EntityNamespace.DEFAULT_XML_NAMESPACE);
+        assertEquals("a & &nbsp;", xml);
+        assertSame(xml, node.getUnescapedText(EntityNamespace.DEFAULT_XML_NAMESPACE));
+        final String html = node.getUnescapedText(EntityNamespace.HTML_NAMESPACE);
+        assertEquals("a & \u00A0", html);
+        assertSame(html, node.getUnescapedText(EntityNamespace.HTML_NAMESPACE));
+        // copies without own entities share the trie of the table
+        assertSame(html, node.getUnescapedText(new EntityNamespace(EntityNamespace.HTML_NAMESPACE)));
+        assertEquals("a & &nbsp;", node.getUnescapedText(EntityNamespace.DEFAULT_XML_NAMESPACE));
+    }
+    
+    /**
+     * Cached text must not outlive a change of the namespace.
+     */
+    @Test
+    public void modifiedNamespace() {
+        final EntityNamespace namespace = new EntityNamespace();
+        final TextNode node = new TextNode("&x;");
+        assertEquals("&x;", node.getUnescapedText(namespace));
+        namespace.putEntity("x", "1");
+        assertEquals("1", node.getUnescapedText(namespace));
+        namespace.putEntity("x", "2");
+        assertEquals("2", node.getUnescapedText(namespace));
+    }
+    
+    @Test
+    public void attribute() {
+        final TagNode tag = new TagNode("a href='?a=1&amp;b=2' title=x checked");
+        final Attribute href = tag.getAttributes().get(0);
+        final String value = href.getUnescapedValue(EntityNamespace.DEFAULT_XML_NAMESPACE);
+        assertEquals("?a=1&b=2", value);
+        assertSame(value, href.getUnescapedValue(EntityNamespace.DEFAULT_XML_NAMESPACE));
+        assertEquals("?a=1&amp;b=2", href.getValue());
+        
+        final Attribute title = tag.getAttributes().get(1);
+        assertSame(title.getValue(), title.getUnescapedValue(EntityNamespace.DEFAULT_XML_NAMESPACE));
+        assertNull(tag.getAttributes().get(2).getUnescapedValue(EntityNamespace.DEFAULT_XML_NAMESPACE));
+        
+        final EntityNamespace namespace = new EntityNamespace();
+        namespace.putEntity("amp", "+");
+        assertEquals("?a=1+b=2", href.getUnescapedValue(namespace));
+    }
+}
@@ -0,0 +1,58 @@
+package at.yawk.yxml;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class XmlUtilTest {
+    /**
+     * NameStartChar of the XML 1.0 specification, limited to the BMP.
+     */
+    private static final int[] NAME_START = {
+            ':', ':', 'A', 'Z', '_', '_', 'a', 'z', 0xC0, 0xD6, 0xD8, 0xF6, 0xF8, 0x2FF, 0x370, 0x37D, 0x37F, 0x1FFF,
+            0x200C, 0x200D, 0x2070, 0x218F, 0x2C00, 0x2FEF, 0x3001, 0xD7FF, 0xF900, 0xFDCF, 0xFDF0, 0xFFFD };
+    /**
+     * NameChar without NameStartChar.
+     */
+    private static final int[] NAME = { '-', '.', '0', '9', 0xB7, 0xB7, 0x300, 0x36F, 0x203F, 0x2040 };
+    
+    /**
+     * The classification tables must agree with the specification for every
+     * <code>char</code>.
+     */
+    @Test
+    public void classification() {
+        for (int i = 0; i <= Character.MAX_VALUE; i++) {
+            final char c = (char) i;
+            final boolean nameStart = inRanges(NAME_START, c);
+            final String message = Integer.toHexString(c);
+            assertEquals(message, nameStart, XmlUtil.isNameStartCharacter(c));
+            assertEquals(message, nameStart || inRanges(NAME, c), XmlUtil.isNameCharacter(c));
+            assertEquals(message, c == ' ' || c == '\t' || c == '\r' || c == '\n', XmlUtil.isWhitespace(c));
+        }
+    }
+    
+    @Test
+    public void indexOf() {
+        final char[] chr = "ab c\t=d= ".toCharArray();
+        assertEquals(2, XmlUtil.indexOfWhitespace(chr, 0, chr.length));
+        assertEquals(4, XmlUtil.indexOfWhitespace(chr, 3, chr.length));
+        // none in the range
+        assertEquals(2, XmlUtil.indexOfWhitespace(chr, 0, 2));
+        assertEquals(5, XmlUtil.indexOfWhitespaceOrEquals(chr, 5, chr.length));
+        assertEquals(7, XmlUtil.indexOfWhitespaceOrEquals(chr, 6, chr.length));
+        assertEquals(2, XmlUtil.indexOfWhitespaceOrEquals(chr, 0, chr.length));
+        assertEquals(7, XmlUtil.indexOfWhitespaceOrEquals(chr, 6, 7));
+        assertEquals(3, XmlUtil.indexOfNonWhitespace(chr, 2, chr.length));
+        assertEquals(chr.length, XmlUtil.indexOfNonWhitespace(chr, 8, chr.length));
+    }
+    
+    private static boolean inRanges(int[] ranges, char c) {
+        for (int i = 0; i < ranges.length; i += 2) {
+            if (c >= ranges[i] && c <= ranges[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,77 @@
+package at.yawk.yxml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ZeroCopyTest {
+    @Test
+    public void sameNodes() throws IOException {
+        final Random random = new Random(2);
+        for (int i = 0; i < 500; i++) {
+            final String document = LexerTests.randomDocument(random);
+            final boolean cleanup = i % 2 == 0;
+            final Lexer lexer = new Lexer(LexerTests.chunkedReader(document, random, 20), cleanup);
+            lexer.setZeroCopy(true);
+            assertEquals(document, LexerTests.expected(document, cleanup), LexerTests.lex(lexer));
+        }
+    }
+    
+    /**
+     * Views of earlier nodes must not change when the lexer reads on, even
+     * if the document is much larger than the lexer buffer.
+     */
+    @Test
+    public void retainedViews() throws IOException {
+        final StringBuilder b = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            b.append("<item id='").append(i).append("'>text ").append(i).append("</item>");
+        }
+        final Lexer lexer = new Lexer(new StringReader(b.toString()), true);
+        lexer.setZeroCopy(true);
+        final List<Node> nodes = LexerTests.nodes(lexer);
+        for (int i = 0; i < 20000; i++) {
+            final TagNode start = (TagNode) nodes.get(i * 3);
+            assertFalse(start.getContentView() instanceof String);
+            assertEquals("item id='" + i + "'", start.getContentView().toString());
+            assertEquals("item", start.getTagNameView().toString());
+            assertEquals(String.valueOf(i), start.getAttributes().get(0).getValueView().toString());
+            assertEquals("text " + i, nodes.get(i * 3 + 1).getContentView().toString());
+        }
+    }
+    
+    @Test
+    public void slices() throws IOException {
+        final Lexer lexer = new Lexer(new StringReader("abcdef"));
+        lexer.setZeroCopy(true);
+        final CharSequence view = lexer.next().getContentView();
+        assertEquals(6, view.length());
+        assertEquals('c', view.charAt(2));
+        assertTrue(view.subSequence(0, 6) == view);
+        final CharSequence sub = view.subSequence(1, 4);
+        assertEquals("bcd", sub.toString());
+        assertEquals("c", sub.subSequence(1, 2).toString());
+        assertTrue(view.toString() == view.toString());
+        for (int[] range : new int[][] { { -1, 2 }, { 2, 1 }, { 0, 7 } }) {
+            try {
+                view.subSequence(range[0], range[1]);
+                fail();
+            } catch (IndexOutOfBoundsException expected) {
+            }
+        }
+        try {
+            sub.charAt(3);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+    }
+}
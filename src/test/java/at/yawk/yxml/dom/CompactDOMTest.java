@@ -0,0 +1,104 @@
+package at.yawk.yxml.dom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import at.yawk.yxml.TextNode;
+
+import org.junit.Test;
+
+public class CompactDOMTest {
+    private static final String[] PARTS = { "<a>", "</a>", "<b>", "</b>", "<c/>", "text", "</x>", "<!-- c -->" };
+    
+    /**
+     * Both parse methods must build the same tree, also for unclosed and
+     * unmatched tags.
+     */
+    @Test
+    public void sameTree() throws IOException {
+        final Random random = new Random(11);
+        for (int i = 0; i < 500; i++) {
+            final StringBuilder b = new StringBuilder();
+            for (int j = random.nextInt(40); j > 0; j--) {
+                b.append(PARTS[random.nextInt(PARTS.length)]);
+            }
+            final String document = b.toString();
+            DOMNode root = DOMParserTest.parser(document).parse();
+            while (root.getParent() != null) {
+                root = root.getParent();
+            }
+            final CompactDOM dom = DOMParserTest.parser(document).parseCompact();
+            assertEquals(document, DOMParserTest.describe(root), DOMParserTest.describe(dom.getRoot()));
+        }
+    }
+    
+    @Test
+    public void indexes() throws IOException {
+        final CompactDOM dom = DOMParserTest.parser("<a>x<b/>y</a>z").parseCompact();
+        assertEquals(6, dom.size());
+        assertNull(dom.getElement(0));
+        assertEquals(-1, dom.getParent(0));
+        assertEquals(1, dom.getFirstChild(0));
+        assertEquals(5, dom.getNextSibling(1));
+        assertEquals(1, dom.getPreviousSibling(5));
+        assertEquals(-1, dom.getPreviousSibling(1));
+        assertEquals(2, dom.getFirstChild(1));
+        assertEquals(1, dom.getParent(3));
+        assertEquals(-1, dom.getFirstChild(3));
+        assertEquals(-1, dom.getNextSibling(4));
+        assertEquals("z", dom.getElement(5).getRawContent());
+        try {
+            dom.getNode(6);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+    }
+    
+    @Test
+    public void views() throws IOException {
+        final CompactDOM dom = DOMParserTest.parser("<a>x<b/>y</a>z").parseCompact();
+        final DOMNode a = dom.getNode(1);
+        assertEquals(dom.getRoot(), a.getParent());
+        assertEquals(a, dom.getRoot().getChildren().get(0));
+        assertEquals(a.hashCode(), dom.getNode(1).hashCode());
+        assertFalse(a.equals(DOMParserTest.parser("<a>").parseCompact().getNode(1)));
+        assertNull(dom.getRoot().getParent());
+        
+        final List<DOMNode> children = a.getChildren();
+        assertEquals(3, children.size());
+        assertEquals("y", children.get(2).getElement().getRawContent());
+        assertEquals(dom.getNode(3), children.get(1));
+        assertEquals(2, children.indexOf(dom.getNode(4)));
+        try {
+            children.get(3);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+        }
+        final Iterator<DOMNode> iterator = dom.getNode(3).getChildren().iterator();
+        assertFalse(iterator.hasNext());
+        try {
+            iterator.next();
+            fail();
+        } catch (NoSuchElementException expected) {
+        }
+        
+        try {
+            a.appendChild(new TextNode("t"));
+            fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+        try {
+            children.remove(0);
+            fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package at.yawk.yxml.dom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.util.List;
+
+import at.yawk.yxml.TagNode;
+
+import org.junit.Test;
+
+public class DOMIndexTest {
+    private static final String DOCUMENT = "<html><body id=main>"
+            + "<p class='a b a'>1</p><p class=b id=x id=y>2</p><p class=a class=c>3</p><br />"
+            + "</body></html>";
+    
+    @Test
+    public void tree() throws IOException {
+        final DOMParser parser = DOMParserTest.parser(DOCUMENT);
+        parser.setIndexing(true);
+        parser.parse();
+        check(parser.getIndex());
+    }
+    
+    @Test
+    public void compact() throws IOException {
+        final DOMParser parser = DOMParserTest.parser(DOCUMENT);
+        parser.setIndexing(true);
+        parser.parseCompact();
+        check(parser.getIndex());
+    }
+    
+    @Test
+    public void disabled() throws IOException {
+        final DOMParser parser = DOMParserTest.parser(DOCUMENT);
+        parser.parse();
+        assertNull(parser.getIndex());
+    }
+    
+    private static void check(DOMIndex index) {
+        assertEquals("[p, p, p]", names(index.getElementsByTagName("p")));
+        assertEquals("[br]", names(index.getElementsByTagName("br")));
+        assertEquals("[]", names(index.getElementsByTagName("P")));
+        assertEquals("body", names(index.getElementById("main")));
+        // the last of duplicate attributes counts, and only once
+        assertNull(index.getElementById("x"));
+        assertEquals("p", names(index.getElementById("y")));
+        assertEquals(2, index.getElementsByAttribute("id").size());
+        assertEquals(3, index.getElementsByAttribute("class").size());
+        assertEquals(1, index.getElementsByClassName("a").size());
+        assertEquals(2, index.getElementsByClassName("b").size());
+        assertEquals(1, index.getElementsByClassName("c").size());
+        assertEquals(1, index.getElementsByAttribute("class", "b").size());
+    }
+    
+    private static String names(List<DOMNode> nodes) {
+        final StringBuilder b = new StringBuilder("[");
+        for (DOMNode node : nodes) {
+            if (b.length() > 1) {
+                b.append(", ");
+            }
+            b.append(names(node));
+        }
+        return b.append(']').toString();
+    }
+    
+    private static String names(DOMNode node) {
+        return ((TagNode) node.getElement()).getTagName();
+    }
+}
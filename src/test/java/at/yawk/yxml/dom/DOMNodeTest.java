@@ -0,0 +1,126 @@
+package at.yawk.yxml.dom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import at.yawk.yxml.TagNode;
+import at.yawk.yxml.TextNode;
+import at.yawk.yxml.dom.DOMNode.DOMMatcher;
+
+import org.junit.Test;
+
+public class DOMNodeTest {
+    private static final DOMMatcher TAGS = new DOMMatcher() {
+        @Override
+        public boolean matches(DOMNode node) {
+            return node.getElement() instanceof TagNode;
+        }
+    };
+    
+    @Test
+    public void documentOrder() throws IOException {
+        final DOMNode root = DOMParserTest.parser("<a><b><c/></b><d/></a><e/>").parse();
+        assertEquals("[a, b, c/, d/, e/]", names(root.getChildrenForMatch(TAGS, Integer.MAX_VALUE, true)));
+        assertEquals("[a, e/]", names(root.getChildrenForMatch(TAGS, Integer.MAX_VALUE, false)));
+        assertEquals("[a, b]", names(root.getChildrenForMatch(TAGS, 2, true)));
+        assertEquals("[]", names(root.getChildrenForMatch(TAGS, 0, true)));
+        assertEquals("a", names(root.getChildForMatch(TAGS, true)));
+        assertNull(root.getChildForMatch(DOMNode.getTagNameMatcher("x"), true));
+        
+        // deep searches include the node itself
+        final DOMNode a = root.getChildren().get(0);
+        assertEquals("[a, b, c/, d/]", names(a.getChildrenForMatch(TAGS, Integer.MAX_VALUE, true)));
+        assertEquals("[b, d/]", names(a.getChildrenForMatch(TAGS, Integer.MAX_VALUE, false)));
+    }
+    
+    @Test
+    public void matchers() throws IOException {
+        final DOMNode root = DOMParserTest.parser("<a id=1><a id=2 id=3></a></a>").parse();
+        assertEquals(2, root.getChildrenForMatch(DOMNode.getTagNameMatcher("a"), 10, true).size());
+        assertEquals(0, root.getChildrenForMatch(DOMNode.getTagNameMatcher("A"), 10, true).size());
+        assertEquals(1, root.getChildrenForMatch(DOMNode.getAttributeEqualsMatcher("id", "1"), 10, true).size());
+        assertEquals(0, root.getChildrenForMatch(DOMNode.getAttributeEqualsMatcher("id", "2"), 10, true).size());
+        assertEquals(1, root.getChildrenForMatch(DOMNode.getAttributeEqualsMatcher("id", "3"), 10, true).size());
+    }
+    
+    /**
+     * The tree is only searched as far as the iterator is advanced.
+     */
+    @Test
+    public void lazy() throws IOException {
+        final DOMNode root = DOMParserTest.parser("<a/><b/><c/><d/>").parse();
+        final AtomicInteger checked = new AtomicInteger();
+        final Iterator<DOMNode> iterator = root.iterateChildrenForMatch(new DOMMatcher() {
+            @Override
+            public boolean matches(DOMNode node) {
+                checked.incrementAndGet();
+                return true;
+            }
+        }, true);
+        assertSame(root, iterator.next());
+        assertEquals(1, checked.get());
+        iterator.next();
+        assertEquals(2, checked.get());
+        assertTrue(iterator.hasNext());
+        assertEquals(3, checked.get());
+    }
+    
+    @Test
+    public void deepTree() {
+        DOMNode node = new DOMNode(null);
+        final DOMNode root = node;
+        for (int i = 0; i < 100000; i++) {
+            node = node.appendChild(new DOMNode(node, new TextNode(String.valueOf(i))));
+        }
+        final Iterator<DOMNode> iterator = root.iterateChildrenForMatch(new DOMMatcher() {
+            @Override
+            public boolean matches(DOMNode node) {
+                return node.getChildren().isEmpty();
+            }
+        }, true);
+        assertSame(node, iterator.next());
+        assertFalse(iterator.hasNext());
+    }
+    
+    @Test
+    public void siblings() throws IOException {
+        final DOMNode root = DOMParserTest.parser("<a/>x<b/>").parse();
+        final List<DOMNode> children = root.getChildren();
+        assertNull(children.get(0).getPreviousSibling());
+        assertSame(children.get(1), children.get(0).getNextSibling());
+        assertSame(children.get(1), children.get(2).getPreviousSibling());
+        assertNull(children.get(2).getNextSibling());
+        assertNull(root.getNextSibling());
+        
+        // nodes that were not appended to their parent are looked up
+        final List<DOMNode> list = new ArrayList<DOMNode>();
+        final DOMNode parent = new DOMNode(null, list, null);
+        final DOMNode first = new DOMNode(parent, new TextNode("1"));
+        list.add(first);
+        final DOMNode second = parent.appendChild(new DOMNode(parent, new TextNode("2")));
+        assertSame(second, first.getNextSibling());
+        assertSame(first, second.getPreviousSibling());
+        assertNull(new DOMNode(parent, new TextNode("3")).getPreviousSibling());
+    }
+    
+    private static String names(List<DOMNode> nodes) {
+        final List<String> names = new ArrayList<String>();
+        for (DOMNode node : nodes) {
+            names.add(((TagNode) node.getElement()).getTagName());
+        }
+        return names.toString();
+    }
+    
+    private static String names(DOMNode node) {
+        return ((TagNode) node.getElement()).getTagName();
+    }
+}
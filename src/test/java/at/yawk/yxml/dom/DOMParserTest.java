@@ -0,0 +1,91 @@
+package at.yawk.yxml.dom;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import at.yawk.yxml.Lexer;
+import at.yawk.yxml.TagNode;
+
+import org.junit.Test;
+
+public class DOMParserTest {
+    @Test
+    public void streamingSubtrees() throws IOException {
+        final List<String> items = new ArrayList<String>();
+        parser("<rss><item><title>a</title></item><other/><item><title>b</title><item>c</item></item></rss>")
+                .parse("item", new DOMParser.SubtreeHandler() {
+                    @Override
+                    public void handleSubtree(DOMNode subtree) {
+                        assertEquals(null, subtree.getParent());
+                        items.add(describe(subtree));
+                    }
+                });
+        // nested matches belong to the outer subtree
+        assertEquals(2, items.size());
+        assertEquals("item(title(a))", items.get(0));
+        assertEquals("item(title(b)item(c))", items.get(1));
+    }
+    
+    @Test
+    public void streamingSubtreeClosedByOuterEndTag() throws IOException {
+        final List<String> items = new ArrayList<String>();
+        parser("<ul><li>a<b>x</ul><li>b</li>").parse("li", new DOMParser.SubtreeHandler() {
+            @Override
+            public void handleSubtree(DOMNode subtree) {
+                items.add(describe(subtree));
+            }
+        });
+        // </ul> closes the open li and b
+        assertEquals("[li(ab(x)), li(b)]", items.toString());
+    }
+    
+    /**
+     * Deeply nested, unclosed documents must not overflow the stack, neither
+     * while building a tree nor while streaming.
+     */
+    @Test
+    public void deepUnclosedDocument() throws IOException {
+        final StringBuilder b = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            b.append("<d>");
+        }
+        b.append("</unknown>");
+        final String document = b.toString();
+        parser(document).parse();
+        parser(document + "<x/>").parse("x", new DOMParser.SubtreeHandler() {
+            @Override
+            public void handleSubtree(DOMNode subtree) {
+            }
+        });
+    }
+    
+    static DOMParser parser(String document) {
+        final Lexer lexer = new Lexer(new StringReader(document));
+        lexer.setCleanupWhitespace(true);
+        return new DOMParser(lexer);
+    }
+    
+    /**
+     * The tag names and text of a tree, children in parentheses.
+     */
+    static String describe(DOMNode node) {
+        final StringBuilder b = new StringBuilder();
+        if (node.getElement() instanceof TagNode) {
+            b.append(((TagNode) node.getElement()).getTagName());
+        } else if (node.getElement() != null) {
+            b.append(node.getElement().getRawContent());
+        }
+        if (!node.getChildren().isEmpty()) {
+            b.append('(');
+            for (DOMNode child : node.getChildren()) {
+                b.append(describe(child));
+            }
+            b.append(')');
+        }
+        return b.toString();
+    }
+}
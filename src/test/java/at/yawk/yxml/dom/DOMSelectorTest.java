@@ -0,0 +1,103 @@
+package at.yawk.yxml.dom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import at.yawk.yxml.TagNode;
+
+import org.junit.Test;
+
+public class DOMSelectorTest {
+    private static final String DOCUMENT = "<div id=root class=page>"
+            + "<ul id=list>text<li id=a class='x y'>1</li> text "
+            + "<li id=b lang=en-US>2</li><!-- c --><li id=c title='foo bar'>3</li>text</ul>"
+            + "<p id=d><span id=e></span><a id=f href=/story/1>x</a></p>"
+            + "<P ID=g></P>"
+            + "</div>";
+    
+    @Test
+    public void tree() throws IOException {
+        check(DOMParserTest.parser(DOCUMENT).parse());
+    }
+    
+    @Test
+    public void compact() throws IOException {
+        check(DOMParserTest.parser(DOCUMENT).parseCompact().getRoot());
+    }
+    
+    private static void check(DOMNode root) {
+        // simple selectors
+        assertEquals("[a, b, c]", select(root, "li"));
+        assertEquals("[d, g]", select(root, "p"));
+        assertEquals("[root, list, a, b, c, d, e, f, g]", select(root, "*"));
+        assertEquals("[b]", select(root, "#b"));
+        assertEquals("[a]", select(root, ".y"));
+        assertEquals("[a]", select(root, "li.x.y"));
+        assertEquals("[]", select(root, "ul.x"));
+        
+        // attributes
+        assertEquals("[b, c]", select(root, "li[lang], [title]"));
+        assertEquals("[f]", select(root, "[href='/story/1']"));
+        assertEquals("[c]", select(root, "[title~=bar]"));
+        assertEquals("[]", select(root, "[title~=ba]"));
+        assertEquals("[b]", select(root, "[lang|=en]"));
+        assertEquals("[f]", select(root, "a[href^=/story]"));
+        assertEquals("[c]", select(root, "[title$=\"bar\"]"));
+        assertEquals("[c]", select(root, "[title*='o b']"));
+        assertEquals("[g]", select(root, "[id=g]"));
+        
+        // pseudo-classes skip text and comments
+        assertEquals("[root, list, a, e]", select(root, ":first-child"));
+        assertEquals("[root, c, f, g]", select(root, ":last-child"));
+        assertEquals("[]", select(root, "li:first-child:last-child"));
+        
+        // combinators
+        assertEquals("[a, b, c, e, f]", select(root, "div *  *"));
+        assertEquals("[e, f]", select(root, "div p > *"));
+        assertEquals("[]", select(root, "div > li"));
+        assertEquals("[b, c]", select(root, "li + li"));
+        assertEquals("[c]", select(root, "#b + li"));
+        assertEquals("[d]", select(root, "ul + p"));
+        assertEquals("[b, c]", select(root, "li ~ li"));
+        assertEquals("[d, g]", select(root, "ul ~ p"));
+        assertEquals("[]", select(root, "#c ~ li"));
+        assertEquals("[f]", select(root, "ul ~ p > span + a"));
+        
+        assertEquals("e", id(DOMSelector.compile("span, a").selectFirst(root)));
+        assertNull(DOMSelector.compile("table").selectFirst(root));
+        assertTrue(DOMSelector.compile("li").matches(DOMSelector.compile("#a").selectFirst(root)));
+    }
+    
+    @Test
+    public void invalid() {
+        for (String selector : new String[] { "", "a >", "a,", "[x", "[x=y", "[x!=y]", ":hover", "a b)" }) {
+            try {
+                DOMSelector.compile(selector);
+                fail(selector);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+    
+    /**
+     * The ids of the nodes selected by the given selector.
+     */
+    private static String select(DOMNode root, String selector) {
+        final List<String> ids = new ArrayList<String>();
+        for (DOMNode node : DOMSelector.compile(selector).select(root)) {
+            ids.add(id(node));
+        }
+        return ids.toString();
+    }
+    
+    private static String id(DOMNode node) {
+        final TagNode tag = (TagNode) node.getElement();
+        return tag.getAttribute("id") != null ? tag.getAttribute("id") : tag.getAttribute("ID");
+    }
+}